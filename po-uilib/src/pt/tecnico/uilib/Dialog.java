@@ -24,6 +24,33 @@ public class Dialog implements AutoCloseable {
   /** Interaction with subsystem (text, swing, ...). */
   private InteractionDriver _backend;
 
+  /** Dialogs used instead of {@link #UI} on some threads. */
+  private static final ThreadLocal<Dialog> _threadDialog = new ThreadLocal<>();
+
+  /**
+   * Binds a dialog to the current thread: on this thread, {@link #UI} (and so
+   * the menus, forms and displays created with it) forwards to the given dialog.
+   * Allows several independent interactions in the same process (e.g. tests).
+   * 
+   * @param dialog the dialog (null to unbind).
+   */
+  public static void bindToCurrentThread(Dialog dialog) {
+    if (dialog == null)
+      _threadDialog.remove();
+    else
+      _threadDialog.set(dialog);
+  }
+
+  /** @return the back-end for the current thread. */
+  private InteractionDriver backend() {
+    if (this == UI) {
+      Dialog bound = _threadDialog.get();
+      if (bound != null)
+        return bound._backend;
+    }
+    return _backend;
+  }
+
   /** Singleton constructor (private). */
   private Dialog() {
     try {
@@ -45,12 +72,12 @@ public class Dialog implements AutoCloseable {
 
   /** @param menu menu to open. */
   public void open(Menu menu) {
-    _backend.open(menu);
+    backend().open(menu);
   }
 
   /** @param form form to fill. */
   public void fill(Form form) {
-    _backend.fill(form);
+    backend().fill(form);
   }
 
   /**
@@ -58,12 +85,12 @@ public class Dialog implements AutoCloseable {
    * @param text  message text.
    */
   public void render(String title, String text) {
-    _backend.render(title, text);
+    backend().render(title, text);
   }
 
   /** Close the interaction. */
   public void close() {
-    _backend.close();
+    backend().close();
   }
 
 }
@@ -1,5 +1,6 @@
 package pt.tecnico.uilib.menus;
 
+import java.util.function.IntSupplier;
 import java.util.function.Predicate;
 
 import pt.tecnico.uilib.Display;
@@ -24,6 +25,15 @@ public abstract class Command<Receiver> {
   /** The validity predicate: is the command available/visible? */
   protected Predicate<Receiver> _valid = receiver -> true;
 
+  /** The receiver's version (null if unknown): validity is only re-evaluated when it changes. */
+  private IntSupplier _receiverVersion = null;
+
+  /** The receiver's version when validity was last evaluated. */
+  private int _validVersion;
+
+  /** Validity when last evaluated (null if never evaluated). */
+  private Boolean _validCache = null;
+
   /** This command's input form. */
   private final Form _form;
 
@@ -99,7 +109,27 @@ public abstract class Command<Receiver> {
    * @return whether the command is valid for the given receiver.
    */
   public boolean isValid() {
-    return _valid.test(_receiver);
+    if (_receiverVersion == null)
+      return _valid.test(_receiver);
+
+    int version = _receiverVersion.getAsInt();
+    if (_validCache == null || version != _validVersion) {
+      _validCache = _valid.test(_receiver);
+      _validVersion = version;
+    }
+    return _validCache;
+  }
+
+  /**
+   * Declares a version of the receiver: a counter that changes whenever the
+   * validity of this command may change. Validity is then only re-evaluated
+   * when the version changes.
+   * 
+   * @param version the receiver's version.
+   */
+  protected final void setReceiverVersion(IntSupplier version) {
+    _receiverVersion = version;
+    _validCache = null;
   }
 
   public void addBooleanField(String key, String prompt) {
@@ -1,5 +1,6 @@
 package pt.tecnico.uilib.text;
 
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
 import java.io.EOFException;
 import java.io.FileNotFoundException;
@@ -7,6 +8,7 @@ import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.PrintStream;
 
 import pt.tecnico.uilib.InteractionDriver;
@@ -17,14 +19,26 @@ import pt.tecnico.uilib.menus.Menu;
 
 /**
  * Text interaction back-end (either through the keyboard or files).
+ * 
+ * The output is buffered (and not flushed after each line): it is only flushed
+ * when input is requested and when the interaction is closed.
  */
 public class TextInteraction implements InteractionDriver {
 
+  /** Size of the output buffers. */
+  static final int BUFFER_SIZE = 1 << 16;
+
   /** Input channel. */
   private BufferedReader _in = new BufferedReader(new InputStreamReader(System.in));;
 
   /** Output channel. */
-  private PrintStream _out = System.out;
+  private PrintStream _out = buffered(System.out);
+
+  /** Close the output channel (false if it only writes to the standard output)? */
+  private boolean _closeOut = false;
+
+  /** Close the input channel (false if it is the standard input)? */
+  private boolean _closeIn = false;
 
   /** Log channel. */
   private PrintStream _log = null;
@@ -41,12 +55,12 @@ public class TextInteraction implements InteractionDriver {
     filename = System.getProperty(Property.OUTPUT_CHANNEL);
     if (filename != null) {
       try {
-        PrintStream pr = new PrintStream(new FileOutputStream(filename));
         if (Boolean.getBoolean(Property.BOTH_CHANNELS)) {
-          _out = new CompositePrintStream(pr, System.out);
+          _out = new CompositePrintStream(new PrintStream(new FileOutputStream(filename)), System.out);
         } else {
-          _out = pr;
+          _out = buffered(new FileOutputStream(filename));
         }
+        _closeOut = true;
       } catch (FileNotFoundException e) {
         _out.println(Message.outputError(e));
       }
@@ -56,6 +70,7 @@ public class TextInteraction implements InteractionDriver {
     if (filename != null) {
       try {
         _in = new BufferedReader(new FileReader(filename));
+        _closeIn = true;
       } catch (FileNotFoundException e) {
         _out.println(Message.inputError(e));
       }
@@ -64,7 +79,7 @@ public class TextInteraction implements InteractionDriver {
     filename = System.getProperty(Property.LOG_CHANNEL);
     if (filename != null) {
       try {
-        _log = new PrintStream(new FileOutputStream(filename));
+        _log = buffered(new FileOutputStream(filename));
       } catch (FileNotFoundException e) {
         _out.println(Message.logError(e));
       }
@@ -73,15 +88,37 @@ public class TextInteraction implements InteractionDriver {
     _writeInput = Boolean.getBoolean(Property.WRITE_INPUT);
   }
 
+  /**
+   * Constructor for given channels (no log, input not copied to output).
+   * Both channels are closed when the interaction is closed.
+   * 
+   * @param in  input channel.
+   * @param out output channel.
+   */
+  public TextInteraction(BufferedReader in, PrintStream out) {
+    _in = in;
+    _out = out;
+    _closeIn = true;
+    _closeOut = true;
+  }
+
+  /**
+   * @param out an output stream
+   * @return a buffered print stream (without automatic flushing) over the given stream.
+   */
+  private static PrintStream buffered(OutputStream out) {
+    return new PrintStream(new BufferedOutputStream(out, BUFFER_SIZE), false);
+  }
+
   /** @see pt.tecnico.uilib.InteractionDriver#close() */
   @Override
   public void close() {
-    if (_out != System.out)
+    _out.flush();
+    if (_closeOut)
       _out.close();
 
     try {
-      String filename = System.getProperty(Property.INPUT_CHANNEL);
-      if (filename != null)
+      if (_closeIn)
         _in.close();
     } catch (IOException e) {
       _out.println(Message.errorClosingInput(e));
@@ -94,21 +131,29 @@ public class TextInteraction implements InteractionDriver {
   /** @see pt.tecnico.uilib.InteractionDriver#open(pt.tecnico.uilib.menus.Menu) */
   @Override
   public void open(Menu menu) {
-    int option = 0, i;
+    int option = 0, i = menu.size();
+
+    // the menu is only rendered again when the validity of some entry changes
+    boolean[] valid = new boolean[menu.size()];
+    String rendered = null;
 
     while (true) {
-      _out.println(menu.title());
-      for (i = 0; i < menu.size(); i++)
-        if (menu.entry(i).isValid())
-          _out.println((i + 1) + " - " + menu.entry(i).title()); //$NON-NLS-1$
-      _out.println(Prompt.exit());
+      boolean changed = (rendered == null);
+      for (int k = 0; k < menu.size(); k++) {
+        boolean v = menu.entry(k).isValid();
+        changed = changed || (v != valid[k]);
+        valid[k] = v;
+      }
+      if (changed)
+        rendered = render(menu, valid);
+      _out.print(rendered);
 
       try {
         option = readInteger(Prompt.option());
         if (option == 0)
           return;
 
-        if (option < 0 || option > i || !menu.entry(option - 1).isValid()) {
+        if (option < 0 || option > i || !valid[option - 1]) {
           _out.println(Message.invalidOption());
         } else {
           menu.entry(option - 1).performCommand();
@@ -131,6 +176,20 @@ public class TextInteraction implements InteractionDriver {
     }
   }
 
+  /**
+   * @param menu  a menu
+   * @param valid the validity of each entry
+   * @return the menu's text (title, valid entries and exit prompt, one per line).
+   */
+  private static String render(Menu menu, boolean[] valid) {
+    String nl = System.lineSeparator();
+    StringBuilder sb = new StringBuilder(menu.title()).append(nl);
+    for (int i = 0; i < menu.size(); i++)
+      if (valid[i])
+        sb.append(i + 1).append(" - ").append(menu.entry(i).title()).append(nl); //$NON-NLS-1$
+    return sb.append(Prompt.exit()).append(nl).toString();
+  }
+
   /** @see pt.tecnico.uilib.InteractionDriver#fill(pt.tecnico.uilib.forms.Form) */
   @Override
   public void fill(Form form) {
@@ -169,6 +228,7 @@ public class TextInteraction implements InteractionDriver {
   private final String readString(String prompt) throws IOException {
     if (prompt != null)
       _out.print(prompt);
+    _out.flush(); // the output is only flushed when input is requested (or when closing)
 
     String str = _in.readLine();
     if (str == null)
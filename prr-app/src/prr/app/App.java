@@ -1,5 +1,7 @@
 package prr.app;
 
+import java.io.IOException;
+
 import prr.NetworkManager;
 import prr.exceptions.ImportFileException;
 import pt.tecnico.uilib.Dialog;
@@ -13,6 +15,21 @@ public class App {
 		try (var ui = Dialog.UI) {
 			var receiver = new NetworkManager();
 
+			// interactive communications longer than this (in milliseconds) are finished automatically
+			Long maxDuration = Long.getLong("maxduration");
+			if (maxDuration != null)
+				receiver.setMaxCommunicationDuration(maxDuration, Long.getLong("maxdurationcheck", 60000L));
+
+			// saved snapshots and archive segments are compressed with this codec ("none" or "deflate")
+			String codec = System.getProperty("codec");
+			if (codec != null)
+				receiver.setCodec(codec);
+
+			// the metrics are dumped periodically (every "metricsperiod" milliseconds) into this file
+			String metricsfile = System.getProperty("metrics");
+			if (metricsfile != null)
+				receiver.getMetrics().startDump(metricsfile, Long.getLong("metricsperiod", 10000L));
+
 			String datafile = System.getProperty("import");
 			if (datafile != null) {
 				try {
@@ -24,6 +41,13 @@ public class App {
 			}
 
 			(new prr.app.main.Menu(receiver)).open();
+
+			try {
+				receiver.awaitPendingSave(); // the last save may still be writing to disk
+			} catch (IOException e) {
+				// no behavior described: just present the problem
+				e.printStackTrace();
+			}
 		}
 	}
 
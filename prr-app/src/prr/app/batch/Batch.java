@@ -0,0 +1,80 @@
+package prr.app.batch;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import prr.NetworkManager;
+import prr.exceptions.ImportFileException;
+import prr.exceptions.UnavailableFileException;
+
+/**
+ * Batch entry-point: executes a script of operations (see {@link BatchExecutor}) directly
+ * on the network, without menus, and prints a summary (see {@link BatchReport}).
+ * <p>
+ * Usage: {@code java -cp ... prr.app.batch.Batch [script]} (the script is read from the
+ * standard input if not given). As in the interactive application, the network may be
+ * loaded from a saved file ({@code -Dopen=file}) or imported ({@code -Dimport=file}),
+ * and {@code -Dcodec} and {@code -Dmaxduration} are supported.
+ */
+public class Batch {
+
+	/** The number of operations parsed together. */
+	private static final int CHUNK_SIZE = 4096;
+
+	/** The number of parsed chunks waiting to be executed. */
+	private static final int QUEUE_CAPACITY = 16;
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		var manager = new NetworkManager();
+
+		String codec = System.getProperty("codec");
+		if (codec != null)
+			manager.setCodec(codec);
+
+		Long maxDuration = Long.getLong("maxduration");
+		if (maxDuration != null)
+			manager.setMaxCommunicationDuration(maxDuration, Long.getLong("maxdurationcheck", 60000L));
+
+		try {
+			String savefile = System.getProperty("open");
+			if (savefile != null)
+				manager.load(savefile);
+
+			String datafile = System.getProperty("import");
+			if (datafile != null)
+				manager.importFile(datafile);
+		} catch (UnavailableFileException | ImportFileException e) {
+			System.err.println(e);
+			System.exit(1);
+		}
+
+		BufferedReader script = new BufferedReader((args.length > 0) ? new FileReader(args[0])
+				: new InputStreamReader(System.in));
+		BlockingQueue<List<Operation>> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+		BatchParser parser = new BatchParser(script, queue, CHUNK_SIZE);
+		new Thread(parser, "batch-parser").start();
+
+		BatchReport report = new BatchReport();
+		BatchExecutor executor = new BatchExecutor(manager, report);
+
+		List<Operation> chunk;
+		while ((chunk = queue.take()) != BatchParser.END) {
+			for (Operation op : chunk)
+				executor.execute(op);
+		}
+		report.finish();
+
+		manager.awaitPendingSave();
+		System.out.print(report);
+
+		if (parser.getFailure() != null) {
+			System.err.println(parser.getFailure());
+			System.exit(1);
+		}
+	}
+}
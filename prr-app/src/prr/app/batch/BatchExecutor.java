@@ -0,0 +1,144 @@
+package prr.app.batch;
+
+import prr.Network;
+import prr.NetworkManager;
+import prr.communications.Communication;
+import prr.terminals.Terminal;
+
+/**
+ * Executes batch operations directly on a network (no menus, no forms).
+ * <p>
+ * Operations (fields separated by '|'):
+ * <pre>
+ * CLIENT|id|name|taxId
+ * BASIC|id|clientId[|state] and FANCY|id|clientId[|state]  (state: ON, OFF or SILENCE)
+ * FRIENDS|terminalId|friendId1,...,friendIdN
+ * ON|terminalId, OFF|terminalId and SILENCE|terminalId
+ * TEXT|originId|destinationId|message
+ * VOICE|originId|destinationId and VIDEO|originId|destinationId
+ * END|terminalId|duration
+ * PAY|terminalId|communicationId
+ * SETTLE|clientId
+ * NOTIFICATIONS|clientId|ON or NOTIFICATIONS|clientId|OFF
+ * SAVE[|filename]  (without a filename, to the file associated with the network)
+ * </pre>
+ * The result of an operation is {@link #OK} or the reason of its failure (the rejections
+ * of communications are reported as in {@link prr.communications.CommunicationResult}).
+ */
+public class BatchExecutor {
+
+	/** The result of successful operations. */
+	public static final String OK = "OK";
+
+	private final NetworkManager _manager;
+	private final BatchReport _report;
+
+	/** Whether SAVE may name the file to save to. */
+	private final boolean _saveAsAllowed;
+
+	/**
+	 * @param manager the manager of the network where operations are executed
+	 * @param report where to record the results
+	 */
+	public BatchExecutor(NetworkManager manager, BatchReport report) {
+		this(manager, report, true);
+	}
+
+	/**
+	 * @param manager the manager of the network where operations are executed
+	 * @param report where to record the results
+	 * @param saveAsAllowed whether SAVE may name the file to save to (otherwise, naming a
+	 *        file is rejected as "FORBIDDEN", and only the file associated with the network
+	 *        is saved)
+	 */
+	public BatchExecutor(NetworkManager manager, BatchReport report, boolean saveAsAllowed) {
+		_manager = manager;
+		_report = report;
+		_saveAsAllowed = saveAsAllowed;
+	}
+
+	/**
+	 *
+	 * @param op the operation to execute
+	 * @return the result ({@link #OK} or the reason of the failure)
+	 */
+	public String execute(Operation op) {
+		String result;
+
+		try {
+			result = doExecute(op, _manager.getNetwork());
+		} catch (IllegalArgumentException e) {
+			result = "MALFORMED";
+		} catch (Exception e) {
+			result = reasonOf(e);
+		}
+
+		_report.record(op, result);
+		return result;
+	}
+
+	private String doExecute(Operation op, Network network) throws Exception {
+		switch (op.getName()) {
+			case "CLIENT" -> network.registerClient(op.field(1), op.field(2), op.intField(3));
+			case "BASIC", "FANCY" -> {
+				Terminal term = network.registerTerminal(op.field(2), op.field(1), op.getName());
+				if (op.size() > 3 && !op.field(3).equals("ON")) changeState(term, op.field(3));
+			}
+			case "FRIENDS" -> {
+				Terminal term = network.getTerminal(op.field(1));
+				for (String friend : op.field(2).split(","))
+					term.addFriend(friend);
+			}
+			case "ON", "OFF", "SILENCE" -> changeState(network.getTerminal(op.field(1)), op.getName());
+			case "TEXT" -> {
+				return network.trySendTextCommunication(op.field(1), op.field(2), op.field(3)).name();
+			}
+			case "VOICE", "VIDEO" -> {
+				return network.tryStartInteractiveCommunication(op.field(1), op.field(2), op.getName()).name();
+			}
+			case "END" -> {
+				Terminal term = network.getTerminal(op.field(1));
+				Communication comm = term.getOngoingCommunication();
+				if (comm == null || !term.canEndCurrentCommunication()) return "NO_ONGOING_COMMUNICATION";
+				comm.finish(op.intField(2));
+			}
+			case "PAY" -> network.getTerminal(op.field(1)).getFromOutbox(op.intField(2)).performPayment();
+			case "SETTLE" -> network.settleClientDebts(op.field(1));
+			case "NOTIFICATIONS" -> {
+				switch (op.field(2)) {
+					case "ON" -> network.enableClientNotifications(op.field(1));
+					case "OFF" -> network.disableClientNotifications(op.field(1));
+					default -> throw new IllegalArgumentException(op.field(2));
+				}
+			}
+			case "SAVE" -> {
+				if (op.size() == 1) _manager.save();
+				else if (_saveAsAllowed) _manager.saveAs(op.field(1));
+				else return "FORBIDDEN";
+			}
+			default -> {
+				return "UNKNOWN_OPERATION";
+			}
+		}
+		return OK;
+	}
+
+	private static void changeState(Terminal term, String state) throws IllegalArgumentException {
+		switch (state) {
+			case "ON" -> term.turnOn();
+			case "OFF" -> term.turnOff();
+			case "SILENCE" -> term.silence();
+			default -> throw new IllegalArgumentException(state);
+		}
+	}
+
+	/**
+	 *
+	 * @param e the exception of a failed operation
+	 * @return the reason of the failure (e.g. "TERMINAL_NOT_FOUND" for a TerminalNotFoundException)
+	 */
+	private static String reasonOf(Exception e) {
+		String name = e.getClass().getSimpleName().replaceFirst("Exception$", "");
+		return name.replaceAll("([a-z])([A-Z])", "$1_$2").toUpperCase();
+	}
+}
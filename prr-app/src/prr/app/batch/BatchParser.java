@@ -0,0 +1,102 @@
+package prr.app.batch;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Parses a batch script, one operation per line (blank lines and lines starting with
+ * '#' are ignored), into chunks of operations handed to the executing thread.
+ * <p>
+ * The parser runs on its own thread: reading and parsing the next chunks overlaps the
+ * execution of the previous ones. The last chunk is always {@link #END}.
+ */
+public class BatchParser implements Runnable {
+
+	/** Marks the end of the script. */
+	public static final List<Operation> END = List.of();
+
+	/** The field separator. */
+	private static final char SEPARATOR = '|';
+
+	private final BufferedReader _reader;
+	private final BlockingQueue<List<Operation>> _queue;
+	private final int _chunkSize;
+
+	/** The error while reading the script (null if none). */
+	private volatile IOException _failure;
+
+	/**
+	 * @param reader the script (closed at the end)
+	 * @param queue where to put the chunks of operations
+	 * @param chunkSize the number of operations of each chunk
+	 */
+	public BatchParser(BufferedReader reader, BlockingQueue<List<Operation>> queue, int chunkSize) {
+		_reader = reader;
+		_queue = queue;
+		_chunkSize = chunkSize;
+	}
+
+	/**
+	 *
+	 * @return the error while reading the script (null if none)
+	 */
+	public IOException getFailure() {
+		return _failure;
+	}
+
+	@Override
+	public void run() {
+		try (BufferedReader reader = _reader) {
+			List<Operation> chunk = new ArrayList<>(_chunkSize);
+			String line;
+			int number = 0;
+
+			while ((line = reader.readLine()) != null) {
+				Operation op = parse(++number, line);
+				if (op == null) continue;
+
+				chunk.add(op);
+				if (chunk.size() == _chunkSize) {
+					_queue.put(chunk);
+					chunk = new ArrayList<>(_chunkSize);
+				}
+			}
+			if (!chunk.isEmpty()) _queue.put(chunk);
+		} catch (IOException e) {
+			_failure = e;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return;
+		}
+
+		try {
+			_queue.put(END);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Format: name|field1|...|fieldN
+	 *
+	 * @param number the number of the line
+	 * @param line the line
+	 * @return the operation of the line (null if the line is blank or a comment)
+	 */
+	public static Operation parse(int number, String line) {
+		if (line.isBlank() || line.charAt(0) == '#') return null;
+
+		List<String> fields = new ArrayList<>(4);
+		int start = 0, end;
+		while ((end = line.indexOf(SEPARATOR, start)) >= 0) {
+			fields.add(line.substring(start, end));
+			start = end + 1;
+		}
+		fields.add(line.substring(start));
+
+		return new Operation(number, fields.toArray(new String[0]));
+	}
+}
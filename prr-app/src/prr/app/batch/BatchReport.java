@@ -0,0 +1,98 @@
+package prr.app.batch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Summary of the execution of batch operations: counts of successes and failures by
+ * operation, failures by reason, the first failed lines and the throughput.
+ */
+public class BatchReport {
+
+	/** The number of failed lines that are kept. */
+	private static final int FAILED_LINES = 10;
+
+	/** The counts of successful and failed operations (by operation name). */
+	private final Map<String, long[]> _byOperation = new TreeMap<>();
+
+	/** The counts of failures (by "operation|reason"). */
+	private final Map<String, Long> _failures = new TreeMap<>();
+
+	/** The first failed lines. */
+	private final List<String> _failedLines = new ArrayList<>();
+
+	private final long _start = System.nanoTime();
+	private long _end;
+
+	/**
+	 *
+	 * @param op the executed operation
+	 * @param result the result ("OK" or the reason of the failure)
+	 */
+	public synchronized void record(Operation op, String result) {
+		long[] counts = _byOperation.computeIfAbsent(op.getName(), k -> new long[2]);
+
+		if (result.equals(BatchExecutor.OK)) {
+			counts[0]++;
+			return;
+		}
+
+		counts[1]++;
+		_failures.merge(op.getName() + "|" + result, 1L, Long::sum);
+		if (_failedLines.size() < FAILED_LINES)
+			_failedLines.add(op.getLine() + "|" + op + "|" + result);
+	}
+
+	/**
+	 * Marks the end of the execution (the throughput is measured until then).
+	 */
+	public synchronized void finish() {
+		_end = System.nanoTime();
+	}
+
+	/**
+	 *
+	 * @return the number of executed operations
+	 */
+	public synchronized long operations() {
+		return _byOperation.values().stream().mapToLong(c -> c[0] + c[1]).sum();
+	}
+
+	/**
+	 *
+	 * @return the number of failed operations
+	 */
+	public synchronized long failed() {
+		return _byOperation.values().stream().mapToLong(c -> c[1]).sum();
+	}
+
+	/**
+	 * Format:
+	 * <pre>
+	 * BATCH|operations|failed|milliseconds|operations-per-minute
+	 * OPERATION|name|succeeded|failed (for each operation)
+	 * FAILURE|name|reason|count (for each reason of failure)
+	 * FAILED|line|operation|reason (for the first failed lines)
+	 * </pre>
+	 *
+	 * @return the string representation of this report, in the format described above
+	 */
+	@Override
+	public synchronized String toString() {
+		long nanos = Math.max(1, ((_end != 0) ? _end : System.nanoTime()) - _start);
+		long operations = operations();
+		StringBuilder sb = new StringBuilder();
+
+		sb.append("BATCH|").append(operations).append('|').append(failed())
+				.append('|').append(nanos / 1_000_000)
+				.append('|').append(Math.round(operations * 60e9 / nanos)).append('\n');
+		_byOperation.forEach((name, counts) ->
+				sb.append("OPERATION|").append(name).append('|').append(counts[0]).append('|').append(counts[1]).append('\n'));
+		_failures.forEach((key, count) -> sb.append("FAILURE|").append(key).append('|').append(count).append('\n'));
+		_failedLines.forEach(line -> sb.append("FAILED|").append(line).append('\n'));
+
+		return sb.toString();
+	}
+}
@@ -0,0 +1,65 @@
+package prr.app.batch;
+
+/**
+ * A parsed operation of a batch script: its name followed by its fields.
+ */
+public class Operation {
+
+	/** The number of the line of the operation in its script. */
+	private final int _line;
+
+	/** The name and the fields of the operation. */
+	private final String[] _fields;
+
+	public Operation(int line, String[] fields) {
+		_line = line;
+		_fields = fields;
+	}
+
+	public int getLine() {
+		return _line;
+	}
+
+	public String getName() {
+		return _fields[0];
+	}
+
+	/**
+	 *
+	 * @return the number of fields (including the name)
+	 */
+	public int size() {
+		return _fields.length;
+	}
+
+	/**
+	 *
+	 * @param i the position of the field (the name is at 0)
+	 * @return the field
+	 * @throws IllegalArgumentException if the operation has no such field
+	 */
+	public String field(int i) throws IllegalArgumentException {
+		if (i >= _fields.length) throw new IllegalArgumentException("missing field " + i);
+		return _fields[i];
+	}
+
+	/**
+	 *
+	 * @param i the position of the field (the name is at 0)
+	 * @return the field, as an integer
+	 * @throws IllegalArgumentException if the operation has no such field, or it is not an integer
+	 */
+	public int intField(int i) throws IllegalArgumentException {
+		return Integer.parseInt(field(i));
+	}
+
+	/**
+	 * Format: name|field1|...|fieldN
+	 *
+	 * @return the operation, in the format described above
+	 */
+	@Override
+	public String toString() {
+		return String.join("|", _fields);
+	}
+}
@@ -0,0 +1,16 @@
+package prr.app.exceptions;
+
+import pt.tecnico.uilib.menus.CommandException;
+
+/** Exception for invalid communication filters. */
+public class InvalidFilterException extends CommandException {
+
+	/** Serial number for serialization. */
+	private static final long serialVersionUID = 202212011200L;
+
+	/** @param condition Invalid condition to report. */
+	public InvalidFilterException(String condition) {
+		super(Message.invalidFilter(condition));
+	}
+
+}
@@ -81,4 +81,12 @@ interface Message {
 	public static String duplicateCommunicationKey(int key) {
 		return "A comunicação '" + key + "' já existe.";
 	}
+
+	/**
+	 * @param condition
+	 * @return string reporting invalid filter conditions
+	 */
+	static String invalidFilter(String condition) {
+		return "A condição '" + condition + "' não é válida.";
+	}
 }
@@ -0,0 +1,30 @@
+package prr.app.lookups;
+
+import prr.Network;
+import prr.app.exceptions.InvalidFilterException;
+import pt.tecnico.uilib.menus.Command;
+import pt.tecnico.uilib.menus.CommandException;
+
+/**
+ * Command for showing a page of the communications matching a filter.
+ */
+class DoSearchCommunications extends Command<Network> {
+
+	DoSearchCommunications(Network receiver) {
+		super(Label.SEARCH_COMMUNICATIONS, receiver);
+		addStringField("filter", Prompt.filter());
+		addIntegerField("offset", Prompt.offset());
+		addIntegerField("limit", Prompt.limit());
+	}
+
+	@Override
+	protected final void execute() throws CommandException {
+		String filter = stringField("filter");
+
+		try {
+			_display.popup(_receiver.getCommunications(filter, integerField("offset"), integerField("limit")));
+		} catch (prr.exceptions.InvalidFilterException e) {
+			throw new InvalidFilterException(e.getCondition());
+		}
+	}
+}
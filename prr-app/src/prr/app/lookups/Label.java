@@ -29,4 +29,7 @@ interface Label {
 	/** List terminals with positive balance. */
 	String SHOW_TERMINALS_WITH_POSITIVE_BALANCE = "Mostrar terminais com saldo positivo";
 
+	/** Page through the calls matching a filter. */
+	String SEARCH_COMMUNICATIONS = "Pesquisar comunicações";
+
 }
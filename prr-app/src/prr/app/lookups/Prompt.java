@@ -19,4 +19,25 @@ interface Prompt {
 		return "Número do terminal: ";
 	}
 
+	/**
+	 * @return string prompting for a communication filter
+	 */
+	static String filter() {
+		return "Filtro (p.ex. type=VIDEO status=ONGOING cost>100): ";
+	}
+
+	/**
+	 * @return string prompting for the number of results to skip
+	 */
+	static String offset() {
+		return "Resultados a saltar: ";
+	}
+
+	/**
+	 * @return string prompting for the number of results to show
+	 */
+	static String limit() {
+		return "Resultados a mostrar: ";
+	}
+
 }
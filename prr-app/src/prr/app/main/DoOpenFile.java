@@ -1,5 +1,7 @@
 package prr.app.main;
 
+import java.io.IOException;
+
 import prr.NetworkManager;
 import prr.app.exceptions.FileOpenFailedException;
 import prr.exceptions.UnavailableFileException;
@@ -23,7 +25,7 @@ class DoOpenFile extends Command<NetworkManager> {
 
 		try {
 			_receiver.load(filename);
-		} catch (UnavailableFileException e) {
+		} catch (UnavailableFileException | IOException e) {
 			throw new FileOpenFailedException(e);
 		}
 	}
@@ -0,0 +1,20 @@
+package prr.app.main;
+
+import prr.NetworkManager;
+import pt.tecnico.uilib.menus.Command;
+import pt.tecnico.uilib.menus.CommandException;
+
+/**
+ * Show the metrics of the network operations.
+ */
+class DoShowMetrics extends Command<NetworkManager> {
+
+	DoShowMetrics(NetworkManager receiver) {
+		super(Label.SHOW_METRICS, receiver);
+	}
+
+	@Override
+	protected final void execute() throws CommandException {
+		_display.popup(_receiver.getMetrics().toString().stripTrailing());
+	}
+}
@@ -25,4 +25,7 @@ interface Label {
 
 	/** §4.1.3. Show global balance. */
 	String SHOW_GLOBAL_BALANCE = "Ver saldo global";
+
+	/** Show the metrics of the network operations. */
+	String SHOW_METRICS = "Ver métricas";
 }
@@ -13,7 +13,8 @@ public final class Menu extends pt.tecnico.uilib.menus.Menu {
 				new DoOpenMenuClient(receiver), //
 				new DoOpenMenuTerminals(receiver), //
 				new DoOpenMenuLookups(receiver), //
-				new DoShowGlobalBalance(receiver.getNetwork())//
+				new DoShowGlobalBalance(receiver.getNetwork()), //
+				new DoShowMetrics(receiver)//
 		);
 	}
 }
@@ -0,0 +1,119 @@
+package prr.app.server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.function.Function;
+
+/**
+ * A client connection of the server: splits the received bytes into request lines and
+ * queues the response lines (in the order of the requests) until they can be written.
+ */
+class Connection {
+
+	/**
+	 * The size of the input buffer of each connection, which also bounds the length of a
+	 * request (longer requests close the connection).
+	 */
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/** The maximum number of responses written at once. */
+	private static final int MAX_GATHER = 64;
+
+	private final SocketChannel _channel;
+
+	/** The received bytes (an incomplete request is kept at its beginning). */
+	private final ByteBuffer _in = ByteBuffer.allocate(BUFFER_SIZE);
+
+	/** The number of bytes of the incomplete request already scanned for its end. */
+	private int _scanned;
+
+	/** The responses not written yet. */
+	private final Deque<ByteBuffer> _out = new ArrayDeque<>();
+
+	/** The responses being written (reused by each write). */
+	private final ByteBuffer[] _writing = new ByteBuffer[MAX_GATHER];
+
+	/** Whether the client asked to close the connection (after the pending responses). */
+	private boolean _closing;
+
+	Connection(SocketChannel channel) {
+		_channel = channel;
+	}
+
+	/**
+	 * Reads the available bytes and handles the complete requests.
+	 *
+	 * @param key the key of the connection
+	 * @param handler computes the response of each request (null to close the connection)
+	 * @return false if the connection was closed by the client
+	 * @throws IOException if there is some error while reading, or a request is too long
+	 */
+	boolean read(SelectionKey key, Function<String, String> handler) throws IOException {
+		int n = _channel.read(_in);
+		if (n < 0) return false;
+
+		_in.flip();
+		for (int end = _scanned; end < _in.limit() && !_closing; end++) {
+			if (_in.get(end) != '\n') continue;
+
+			int start = _in.position();
+			int length = (end > start && _in.get(end - 1) == '\r') ? end - start - 1 : end - start;
+			String line = new String(_in.array(), start, length, StandardCharsets.UTF_8);
+			_in.position(end + 1);
+
+			String response = handler.apply(line);
+			if (response == null) _closing = true;
+			else _out.add(ByteBuffer.wrap((response + "\n").getBytes(StandardCharsets.UTF_8)));
+		}
+
+		if (_closing) {
+			_in.clear(); // the requests after QUIT are ignored
+		} else {
+			_scanned = _in.remaining();
+			_in.compact();
+			if (!_in.hasRemaining()) throw new IOException("request too long");
+		}
+
+		return write(key);
+	}
+
+	/**
+	 * Writes the pending responses (as much as the channel accepts).
+	 *
+	 * @param key the key of the connection
+	 * @return false if the connection is to be closed (all the responses were written)
+	 * @throws IOException if there is some error while writing
+	 */
+	boolean write(SelectionKey key) throws IOException {
+		while (!_out.isEmpty()) {
+			int n = 0;
+			for (ByteBuffer response : _out) {
+				_writing[n++] = response;
+				if (n == MAX_GATHER) break;
+			}
+
+			_channel.write(_writing, 0, n);
+			boolean full = _writing[n - 1].hasRemaining();
+			Arrays.fill(_writing, 0, n, null);
+
+			while (!_out.isEmpty() && !_out.peek().hasRemaining())
+				_out.poll();
+			if (full) break; // the channel is full
+		}
+
+		key.interestOps(_out.isEmpty() ? SelectionKey.OP_READ : SelectionKey.OP_WRITE);
+		return !(_closing && _out.isEmpty());
+	}
+
+	void close() {
+		try {
+			_channel.close();
+		} catch (IOException e) { /* just ignore */ }
+	}
+}
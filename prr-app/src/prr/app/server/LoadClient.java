@@ -0,0 +1,112 @@
+package prr.app.server;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import prr.metrics.Histogram;
+
+/**
+ * Load client of the server: measures the request throughput.
+ * <p>
+ * Usage: {@code java -cp ... prr.app.server.LoadClient [port [connections [requests [window]]]]}
+ * (by default, port 7070, 8 connections, 100000 requests per connection and windows of 64
+ * requests). Each connection registers its own client and two terminals, and then sends
+ * text communications between them, a window of requests at a time (without waiting for
+ * the responses of the window). The throughput and the latency of the windows are printed.
+ */
+public class LoadClient {
+
+	public static void main(String[] args) throws Exception {
+		int port = (args.length > 0) ? Integer.parseInt(args[0]) : 7070;
+		int connections = (args.length > 1) ? Integer.parseInt(args[1]) : 8;
+		int requests = (args.length > 2) ? Integer.parseInt(args[2]) : 100_000;
+		int window = (args.length > 3) ? Integer.parseInt(args[3]) : 64;
+
+		Histogram latency = new Histogram();
+		LongAdder failed = new LongAdder();
+		List<Thread> threads = new ArrayList<>();
+
+		long start = System.nanoTime();
+		for (int c = 0; c < connections; c++) {
+			int id = c;
+			Thread thread = new Thread(() -> {
+				try {
+					run(port, id, requests, window, latency, failed);
+				} catch (IOException e) {
+					System.err.println("connection " + id + ": " + e);
+				}
+			}, "load-" + c);
+			threads.add(thread);
+			thread.start();
+		}
+		for (Thread thread : threads)
+			thread.join();
+		long nanos = System.nanoTime() - start;
+
+		long total = (long) connections * requests;
+		System.out.println("requests=" + total + "|failed=" + failed.sum()
+				+ "|milliseconds=" + nanos / 1_000_000
+				+ "|perSecond=" + Math.round(total * 1e9 / nanos));
+		System.out.println("window(us)|" + windowLatency(latency));
+	}
+
+	private static String windowLatency(Histogram latency) {
+		return "count=" + latency.count() + "|p50=" + latency.percentile(0.50) / 1000
+				+ "|p99=" + latency.percentile(0.99) / 1000 + "|max=" + latency.max() / 1000;
+	}
+
+	private static void run(int port, int id, int requests, int window, Histogram latency, LongAdder failed)
+			throws IOException {
+		// the keys depend on the process, so the client may run again against the same server
+		long pid = ProcessHandle.current().pid();
+		int base = 100000 + (int) (pid * 1024 % 800000);
+		String client = "load" + id + "-" + pid;
+		String origin = String.valueOf(base + 2 * id);
+		String destin = String.valueOf(base + 2 * id + 1);
+
+		try (Socket socket = new Socket("127.0.0.1", port);
+				BufferedWriter out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+				BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+			socket.setTcpNoDelay(true);
+
+			for (String setup : List.of("CLIENT|" + client + "|Load " + id + "|" + (id + 1),
+					"FANCY|" + origin + "|" + client + "|ON", "FANCY|" + destin + "|" + client + "|ON")) {
+				out.write(setup);
+				out.newLine();
+			}
+			out.flush();
+			for (int i = 0; i < 3; i++)
+				in.readLine();
+
+			for (int sent = 0; sent < requests; sent += window) {
+				int n = Math.min(window, requests - sent);
+				long start = System.nanoTime();
+
+				for (int i = 0; i < n; i++) {
+					out.write("TEXT|" + origin + "|" + destin + "|load message " + (sent + i) % 16);
+					out.newLine();
+				}
+				out.flush();
+
+				for (int i = 0; i < n; i++) {
+					String response = in.readLine();
+					if (response == null) throw new IOException("connection closed");
+					if (!response.equals("OK")) failed.increment();
+				}
+				latency.record(System.nanoTime() - start);
+			}
+
+			out.write("QUIT");
+			out.newLine();
+			out.flush();
+		}
+	}
+}
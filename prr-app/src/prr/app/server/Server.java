@@ -0,0 +1,185 @@
+package prr.app.server;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+
+import prr.NetworkManager;
+import prr.app.batch.BatchExecutor;
+import prr.app.batch.BatchParser;
+import prr.app.batch.BatchReport;
+import prr.app.batch.Operation;
+import prr.exceptions.ImportFileException;
+import prr.exceptions.MissingFileAssociationException;
+import prr.exceptions.UnavailableFileException;
+
+/**
+ * Server entry-point: exposes the network over a local TCP socket.
+ * <p>
+ * Usage: {@code java -cp ... prr.app.server.Server [port]} (7070 by default; the server only
+ * listens on the loopback interface). As in the interactive application, the network may be
+ * loaded from a saved file ({@code -Dopen=file}) or imported ({@code -Dimport=file}), and
+ * {@code -Dcodec} and {@code -Dmaxduration} are supported.
+ * <p>
+ * Protocol: each request is a line with an operation of the batch language (see
+ * {@link BatchExecutor}), and each response is a line with its result ("OK" or the reason
+ * of the failure), in the order of the requests (so clients may send requests without
+ * waiting for the previous responses). The request "QUIT" closes the connection.
+ * <p>
+ * The socket is not authenticated, so requests cannot name files: SAVE only saves to the
+ * file the network was loaded from (a request naming a file is rejected as "FORBIDDEN").
+ * <p>
+ * All the connections are served by a single thread (with a selector), so the operations
+ * are applied to the network one at a time, without locks. When the server is stopped, the
+ * network is saved (if associated with a file) and a report is printed (see {@link BatchReport}).
+ */
+public class Server {
+
+	/** The default port. */
+	private static final int PORT = 7070;
+
+	private final NetworkManager _manager;
+	private final BatchReport _report = new BatchReport();
+	private final BatchExecutor _executor;
+	private final Selector _selector;
+	private final ServerSocketChannel _listener;
+
+	/** The number of requests received (numbers the requests in the report). */
+	private int _requests;
+
+	/** Whether the server is running (cleared to stop it). */
+	private volatile boolean _running = true;
+
+	Server(NetworkManager manager, int port) throws IOException {
+		_manager = manager;
+		_executor = new BatchExecutor(manager, _report, false);
+		_selector = Selector.open();
+		_listener = ServerSocketChannel.open();
+		_listener.bind(new InetSocketAddress("127.0.0.1", port));
+		_listener.configureBlocking(false);
+		_listener.register(_selector, SelectionKey.OP_ACCEPT);
+	}
+
+	/**
+	 * Serves the connections until {@link #stop()} is called.
+	 */
+	void serve() throws IOException {
+		while (_running) {
+			_selector.select();
+
+			Iterator<SelectionKey> keys = _selector.selectedKeys().iterator();
+			while (keys.hasNext()) {
+				SelectionKey key = keys.next();
+				keys.remove();
+
+				if (key.isAcceptable()) {
+					accept();
+					continue;
+				}
+
+				Connection conn = (Connection) key.attachment();
+				boolean open;
+				try {
+					open = key.isReadable() ? conn.read(key, this::handle) : conn.write(key);
+				} catch (IOException e) {
+					open = false;
+				}
+				if (!open) {
+					key.cancel();
+					conn.close();
+				}
+			}
+		}
+
+		for (SelectionKey key : _selector.keys()) {
+			if (key.attachment() instanceof Connection conn) conn.close();
+		}
+		_listener.close();
+		_selector.close();
+	}
+
+	private void accept() throws IOException {
+		SocketChannel channel = _listener.accept();
+		if (channel == null) return;
+
+		channel.configureBlocking(false);
+		channel.register(_selector, SelectionKey.OP_READ, new Connection(channel));
+	}
+
+	/**
+	 *
+	 * @param request a request line
+	 * @return the response line (null to close the connection)
+	 */
+	private String handle(String request) {
+		if (request.equals("QUIT")) return null;
+
+		Operation op = BatchParser.parse(++_requests, request);
+		return (op == null) ? "" : _executor.execute(op);
+	}
+
+	/**
+	 * Stops the server (may be called from any thread).
+	 */
+	void stop() {
+		_running = false;
+		_selector.wakeup();
+	}
+
+	/**
+	 * Saves the network (if associated with a file and changed).
+	 */
+	void save() {
+		try {
+			_manager.save();
+			_manager.awaitPendingSave();
+		} catch (MissingFileAssociationException e) {
+			/* nothing to save to */
+		} catch (IOException e) {
+			System.err.println(e);
+		}
+	}
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		var manager = new NetworkManager();
+
+		String codec = System.getProperty("codec");
+		if (codec != null)
+			manager.setCodec(codec);
+
+		Long maxDuration = Long.getLong("maxduration");
+		if (maxDuration != null)
+			manager.setMaxCommunicationDuration(maxDuration, Long.getLong("maxdurationcheck", 60000L));
+
+		try {
+			String savefile = System.getProperty("open");
+			if (savefile != null)
+				manager.load(savefile);
+
+			String datafile = System.getProperty("import");
+			if (datafile != null)
+				manager.importFile(datafile);
+		} catch (UnavailableFileException | ImportFileException e) {
+			System.err.println(e);
+			System.exit(1);
+		}
+
+		Server server = new Server(manager, (args.length > 0) ? Integer.parseInt(args[0]) : PORT);
+		Thread main = Thread.currentThread();
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			server.stop();
+			try {
+				main.join();
+			} catch (InterruptedException e) { /* just ignore */ }
+		}, "server-shutdown"));
+
+		server.serve();
+		server.save();
+		server._report.finish();
+		System.out.print(server._report);
+	}
+}
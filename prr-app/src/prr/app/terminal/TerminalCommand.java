@@ -8,6 +8,8 @@ import pt.tecnico.uilib.menus.Command;
 
 /**
  * Commands for terminals may sometimes need to consider the network context.
+ * Their validity only depends on the terminal's state, so it is only re-evaluated
+ * when the terminal changes (see {@link Terminal#getVersion()}).
  */
 abstract class TerminalCommand extends Command<Terminal> {
 
@@ -16,10 +18,12 @@ abstract class TerminalCommand extends Command<Terminal> {
 	TerminalCommand(String label, Network network, Terminal terminal) {
 		super(label, terminal);
 		_network = network;
+		setReceiverVersion(terminal::getVersion);
 	}
 
 	TerminalCommand(String label, Network network, Terminal terminal, Predicate<Terminal> valid) {
 		super(label, terminal, valid);
 		_network = network;
+		setReceiverVersion(terminal::getVersion);
 	}
 }
@@ -0,0 +1,208 @@
+package prr.app.tests;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import prr.NetworkManager;
+import prr.exceptions.ImportFileException;
+import pt.tecnico.uilib.Dialog;
+import pt.tecnico.uilib.text.TextInteraction;
+
+/**
+ * Runs the scenario tests (as in {@code runtests.sh}) in a single process.
+ * <p>
+ * Usage: {@code java -cp ... prr.app.tests.TestRunner [-j threads] directory...}, from the
+ * directory of the test suite (e.g. {@code ef-tests}, since the scenarios save and open
+ * files relative to it). For each {@code X.in} in the given directories, the application
+ * runs with a fresh {@link NetworkManager}, {@code X.import} (if any) imported, {@code X.in}
+ * as input and the output kept in memory. The output is compared with {@code X.out},
+ * ignoring whitespace and blank lines (as {@code diff -B -w}); for failed tests it is also
+ * written to {@code X.outhyp}.
+ * <p>
+ * Scenarios mentioning the same file (an input line such as {@code ap01.dat}) depend on each
+ * other, so they run one after the other, by name; all the other scenarios run in parallel
+ * (each thread binds its own dialog, see {@link Dialog#bindToCurrentThread(Dialog)}).
+ * The result and time of each test, and a summary, are printed (the exit status is 1 if some
+ * test failed).
+ */
+public class TestRunner {
+
+	/** A file name in an input line (a word with an extension). */
+	private static final Pattern FILENAME = Pattern.compile("^\\S+\\.[A-Za-z]\\w*$");
+
+	/** The result of a test. */
+	private static class Result {
+		private final String _name;
+		private final long _nanos;
+		private final String _failure; // null if passed
+
+		Result(String name, long nanos, String failure) {
+			_name = name;
+			_nanos = nanos;
+			_failure = failure;
+		}
+
+		/**
+		 * Format: PASS|name|milliseconds or FAIL|name|milliseconds|reason
+		 */
+		@Override
+		public String toString() {
+			String ms = String.format("%.1f", _nanos / 1e6);
+			return (_failure == null) ? "PASS|" + _name + "|" + ms : "FAIL|" + _name + "|" + ms + "|" + _failure;
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		int threads = Runtime.getRuntime().availableProcessors();
+		List<Path> inputs = new ArrayList<>();
+
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-j")) {
+				threads = Integer.parseInt(args[++i]);
+				continue;
+			}
+			try (Stream<Path> files = Files.list(Path.of(args[i]))) {
+				files.filter(f -> f.toString().endsWith(".in")).forEach(inputs::add);
+			}
+		}
+
+		long start = System.nanoTime();
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		List<Future<List<Result>>> futures = new ArrayList<>();
+		for (List<Path> group : groups(inputs))
+			futures.add(pool.submit(() -> group.stream().map(TestRunner::run).toList()));
+
+		Map<String, Result> results = new TreeMap<>();
+		for (Future<List<Result>> future : futures)
+			future.get().forEach(r -> results.put(r._name, r));
+		pool.shutdown();
+		long wall = System.nanoTime() - start;
+
+		results.values().forEach(System.out::println);
+
+		long failed = results.values().stream().filter(r -> r._failure != null).count();
+		long total = results.values().stream().mapToLong(r -> r._nanos).sum();
+		System.out.println("TESTS|" + results.size() + "|failed=" + failed + "|threads=" + threads
+				+ "|wall=" + wall / 1_000_000 + "ms|sum=" + total / 1_000_000 + "ms");
+		System.exit((failed == 0) ? 0 : 1);
+	}
+
+	/**
+	 * Groups the scenarios mentioning the same files (each group sorted by name).
+	 *
+	 * @param inputs the input files of the scenarios
+	 * @return the groups (each to run sequentially)
+	 */
+	private static List<List<Path>> groups(List<Path> inputs) throws IOException {
+		List<Path> sorted = inputs.stream().sorted().toList();
+		int[] parent = new int[sorted.size()];
+		Map<String, Integer> firstUser = new HashMap<>();
+
+		for (int i = 0; i < sorted.size(); i++) {
+			parent[i] = i;
+			for (String line : Files.readAllLines(sorted.get(i), StandardCharsets.UTF_8)) {
+				if (!FILENAME.matcher(line.strip()).matches()) continue;
+
+				Integer other = firstUser.putIfAbsent(line.strip(), i);
+				if (other != null) parent[root(parent, i)] = root(parent, other);
+			}
+		}
+
+		Map<Integer, List<Path>> groups = new TreeMap<>();
+		for (int i = 0; i < sorted.size(); i++)
+			groups.computeIfAbsent(root(parent, i), k -> new ArrayList<>()).add(sorted.get(i));
+		return new ArrayList<>(groups.values());
+	}
+
+	private static int root(int[] parent, int i) {
+		while (parent[i] != i)
+			i = parent[i] = parent[parent[i]];
+		return i;
+	}
+
+	/**
+	 * Runs a scenario on the current thread.
+	 *
+	 * @param input the input file of the scenario
+	 * @return the result
+	 */
+	private static Result run(Path input) {
+		String base = input.toString().substring(0, input.toString().length() - ".in".length());
+		String name = input.getFileName().toString().replaceFirst("\\.in$", "");
+		long start = System.nanoTime();
+
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		NetworkManager manager = new NetworkManager();
+
+		try (BufferedReader in = Files.newBufferedReader(input, StandardCharsets.UTF_8)) {
+			Dialog dialog = new Dialog(new TextInteraction(in, new PrintStream(output, false, StandardCharsets.UTF_8)));
+			Dialog.bindToCurrentThread(dialog);
+			try {
+				Path datafile = Path.of(base + ".import");
+				if (Files.exists(datafile)) {
+					try {
+						manager.importFile(datafile.toString());
+					} catch (ImportFileException e) {
+						// no behavior described: just present the problem (as the application)
+						e.printStackTrace();
+					}
+				}
+				(new prr.app.main.Menu(manager)).open();
+			} finally {
+				dialog.close();
+				Dialog.bindToCurrentThread(null);
+				manager.awaitPendingSave(); // the next scenario may open the saved file
+			}
+		} catch (IOException | RuntimeException e) {
+			return new Result(name, System.nanoTime() - start, "exception " + e);
+		}
+		long nanos = System.nanoTime() - start;
+
+		try {
+			String actual = output.toString(StandardCharsets.UTF_8);
+			String failure = compare(Files.readString(Path.of(base + ".out"), StandardCharsets.UTF_8), actual);
+			if (failure != null)
+				Files.writeString(Path.of(base + ".outhyp"), actual, StandardCharsets.UTF_8);
+			return new Result(name, nanos, failure);
+		} catch (IOException e) {
+			return new Result(name, nanos, "exception " + e);
+		}
+	}
+
+	/**
+	 * Compares two outputs, ignoring whitespace and blank lines.
+	 *
+	 * @return the first difference (null if none)
+	 */
+	private static String compare(String expected, String actual) {
+		List<String> exp = normalize(expected);
+		List<String> act = normalize(actual);
+
+		for (int i = 0; i < Math.min(exp.size(), act.size()); i++) {
+			if (!exp.get(i).equals(act.get(i)))
+				return "line " + (i + 1) + ": expected \"" + exp.get(i) + "\" but was \"" + act.get(i) + "\"";
+		}
+		if (exp.size() != act.size())
+			return "expected " + exp.size() + " lines but was " + act.size();
+		return null;
+	}
+
+	private static List<String> normalize(String text) {
+		return text.lines().map(l -> l.replaceAll("\\s+", "")).filter(l -> !l.isEmpty()).toList();
+	}
+}
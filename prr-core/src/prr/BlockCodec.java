@@ -0,0 +1,570 @@
+package prr;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Block compression of snapshots and archive segments.
+ * <p>
+ * Data is cut into blocks, each compressed on its own (so each block can be decoded without
+ * the others): a block is written as its raw length, its stored length and its stored bytes.
+ * A snapshot file starts with a header declaring the codec:
+ * <pre>
+ * "PRRS" | codec (byte) | raw length (long) | block count (long) | blocks...
+ * </pre>
+ * Files without this header are legacy snapshots (a plain serialized network).
+ */
+final class BlockCodec {
+
+	/** Marks the beginning of a snapshot file ("PRRS"). */
+	static final int MAGIC = 0x50525253;
+
+	/** Blocks are stored as they are. */
+	static final byte NONE = 0;
+
+	/** Blocks are compressed with {@link Deflater}. */
+	static final byte DEFLATE = 1;
+
+	/** The size of the snapshot blocks (before compression). */
+	static final int BLOCK_SIZE = 1 << 20;
+
+	/**
+	 * The largest raw length of a block accepted when reading (snapshot blocks are at most
+	 * {@link #BLOCK_SIZE}, but archive blocks hold a number of records, whatever their size).
+	 */
+	static final int MAX_BLOCK_LENGTH = 16 * BLOCK_SIZE;
+
+	/** The maximum number of blocks held in memory while saving a snapshot. */
+	static final int BUFFERED_BLOCKS = 4;
+
+	private BlockCodec() {
+		/* empty (static methods only) */
+	}
+
+	/**
+	 *
+	 * @param name the name of the codec ("none" or "deflate")
+	 * @return the codec
+	 * @throws IllegalArgumentException if the codec is unknown
+	 */
+	static byte codecOf(String name) throws IllegalArgumentException {
+		return switch (name.toLowerCase()) {
+			case "none" -> NONE;
+			case "deflate" -> DEFLATE;
+			default -> throw new IllegalArgumentException(name);
+		};
+	}
+
+	/**
+	 * Writes a snapshot to a file, as its blocks are handed over by the given stream, until
+	 * the stream is closed. The header is written first, and its totals are filled in once
+	 * the last block is written.
+	 * <p>
+	 * After an error, the blocks are still taken from the stream (and discarded), so the
+	 * thread serializing the network is never left waiting.
+	 *
+	 * @param blocks the stream the network is serialized to
+	 * @param codec the codec of the blocks
+	 * @param file where to write (at its beginning)
+	 * @throws IOException if there is some error while writing, or if the stream was aborted
+	 */
+	static void writeSnapshot(BlockOutputStream blocks, byte codec, FileOutputStream file) throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file));
+		Deflater deflater = (codec == DEFLATE) ? new Deflater(Deflater.BEST_SPEED) : null;
+		IOException failure = null;
+		long length = 0;
+		long count = 0;
+
+		try {
+			try {
+				out.write(header(codec, 0, 0).array()); // the totals are not known yet
+			} catch (IOException e) {
+				failure = e;
+			}
+
+			for (Block block = blocks.take(); block != END; block = blocks.take()) {
+				if (failure == null) {
+					try {
+						writeBlock(block.data(), 0, block.length(), deflater, out);
+					} catch (IOException e) {
+						failure = e;
+					}
+				}
+				length += block.length();
+				count++;
+				blocks.recycle(block.data());
+			}
+
+			if (failure != null) throw failure;
+			if (blocks.isAborted()) throw new IOException("snapshot aborted");
+
+			out.flush();
+			FileChannel channel = file.getChannel();
+			ByteBuffer header = header(codec, length, count);
+			while (header.hasRemaining())
+				channel.write(header, header.position());
+		} finally {
+			blocks.detach();
+			if (deflater != null) deflater.end();
+		}
+	}
+
+	/**
+	 *
+	 * @return the header of a snapshot
+	 */
+	private static ByteBuffer header(byte codec, long length, long count) {
+		ByteBuffer header = ByteBuffer.allocate(Integer.BYTES + 1 + 2 * Long.BYTES);
+		header.putInt(MAGIC).put(codec).putLong(length).putLong(count);
+		return header.flip();
+	}
+
+	/**
+	 * Output stream cutting what is written to it into blocks, which are handed over to the
+	 * thread writing the snapshot (see {@link #writeSnapshot(BlockOutputStream, byte, FileOutputStream)}).
+	 * <p>
+	 * At most {@link #BUFFERED_BLOCKS} blocks exist: when the writer is behind, writing to the
+	 * stream waits for the writer to reuse one of them. Closing the stream hands over the
+	 * last block.
+	 */
+	static final class BlockOutputStream extends OutputStream {
+
+		/** The blocks handed over to the writer (followed by {@link #END} once closed). */
+		private final BlockingQueue<Block> _full = new ArrayBlockingQueue<>(BUFFERED_BLOCKS + 1);
+
+		/** The blocks written by the writer, to be reused. */
+		private final BlockingQueue<byte[]> _free = new ArrayBlockingQueue<>(BUFFERED_BLOCKS);
+
+		/** The number of blocks allocated so far. */
+		private int _allocated;
+
+		/** The block being filled (null if none). */
+		private byte[] _block;
+
+		/** The number of bytes in the block being filled. */
+		private int _size;
+
+		/** The number of bytes written to the stream. */
+		private long _length;
+
+		private boolean _closed;
+
+		private volatile boolean _aborted;
+
+		/** Whether the writer stopped taking blocks. */
+		private volatile boolean _detached;
+
+		@Override
+		public void write(int b) throws IOException {
+			block()[_size++] = (byte) b;
+			_length++;
+			if (_size == BLOCK_SIZE) handOver();
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			Objects.checkFromIndexSize(off, len, b.length);
+			while (len > 0) {
+				byte[] block = block();
+				int n = Math.min(len, BLOCK_SIZE - _size);
+				System.arraycopy(b, off, block, _size, n);
+				_size += n;
+				_length += n;
+				off += n;
+				len -= n;
+				if (_size == BLOCK_SIZE) handOver();
+			}
+		}
+
+		/**
+		 * Hands over the last block: the writer then completes the snapshot.
+		 */
+		@Override
+		public void close() throws IOException {
+			if (_closed) return;
+			if (_size > 0) handOver();
+			_closed = true;
+			_full.add(END);
+		}
+
+		/**
+		 * Stops the snapshot: the writer discards the blocks handed over, and fails.
+		 */
+		void abort() {
+			if (_closed) return;
+			_closed = true;
+			_aborted = true;
+			_full.add(END);
+		}
+
+		/**
+		 *
+		 * @return true if the snapshot was aborted
+		 */
+		boolean isAborted() {
+			return _aborted;
+		}
+
+		/**
+		 *
+		 * @return the number of bytes written to the stream
+		 */
+		long length() {
+			return _length;
+		}
+
+		/**
+		 * Called by the writer to get the next block (waits for it).
+		 *
+		 * @return the next block ({@link #END} once the stream is closed)
+		 * @throws InterruptedIOException if interrupted while waiting
+		 */
+		Block take() throws InterruptedIOException {
+			try {
+				return _full.take();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException();
+			}
+		}
+
+		/**
+		 * Called by the writer once a block is written.
+		 *
+		 * @param block the block, to be reused
+		 */
+		void recycle(byte[] block) {
+			_free.offer(block);
+		}
+
+		/**
+		 * Called by the writer when it stops taking blocks.
+		 */
+		void detach() {
+			_detached = true;
+		}
+
+		/**
+		 *
+		 * @return the block being filled (a new one if none)
+		 * @throws IOException if the stream is closed or the writer stopped
+		 */
+		private byte[] block() throws IOException {
+			if (_closed) throw new IOException("stream closed");
+			if (_block != null) return _block;
+
+			_block = _free.poll();
+			if (_block == null && _allocated < BUFFERED_BLOCKS) {
+				_allocated++;
+				_block = new byte[BLOCK_SIZE];
+			}
+			try {
+				while (_block == null) {
+					if (_detached) throw new IOException("snapshot writer stopped");
+					_block = _free.poll(100, TimeUnit.MILLISECONDS);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException();
+			}
+			return _block;
+		}
+
+		private void handOver() {
+			_full.add(new Block(_block, _size)); // never full: at most BUFFERED_BLOCKS blocks exist
+			_block = null;
+			_size = 0;
+		}
+	}
+
+	/** A block handed over to the writer of a snapshot. */
+	private record Block(byte[] data, int length) {
+	}
+
+	/** Handed over to the writer of a snapshot after the last block. */
+	private static final Block END = new Block(new byte[0], 0);
+
+	/**
+	 * Reads a snapshot written by {@link #writeSnapshot(BlockOutputStream, byte, FileOutputStream)}.
+	 * <p>
+	 * The blocks are read in order, and decoded on the given pool ahead of whoever reads the
+	 * returned stream (a few blocks per thread of the pool, so they are decoded in parallel,
+	 * and only those blocks are held in memory).
+	 *
+	 * @param in where to read from (must support mark/reset)
+	 * @param pool where to decode the blocks
+	 * @return the serialized network (the given stream, reset to its beginning, if the file
+	 *         is a legacy snapshot)
+	 * @throws IOException if there is some error while reading the header
+	 */
+	static InputStream readSnapshot(InputStream in, ForkJoinPool pool) throws IOException {
+		in.mark(Integer.BYTES);
+		DataInputStream data = new DataInputStream(in);
+
+		if (data.readInt() != MAGIC) {
+			in.reset();
+			return in;
+		}
+
+		byte codec = data.readByte();
+		long length = data.readLong();
+		long count = data.readLong();
+		if (length < 0 || count != (length + BLOCK_SIZE - 1) / BLOCK_SIZE)
+			throw new IOException("corrupted snapshot header");
+
+		return new BlockInputStream(data, codec, length, count, pool);
+	}
+
+	/**
+	 * Input stream over the decoded blocks of a snapshot. Closing it does not close the file.
+	 */
+	private static final class BlockInputStream extends InputStream {
+
+		private final DataInputStream _in;
+		private final byte _codec;
+		private final long _length;
+		private final long _count;
+		private final ForkJoinPool _pool;
+
+		/** The maximum number of blocks being decoded ahead. */
+		private final int _window;
+
+		/** The blocks being decoded, in order. */
+		private final Deque<Future<byte[]>> _decoding = new ArrayDeque<>();
+
+		/** The number of blocks read from the file. */
+		private long _read;
+
+		/** The number of bytes decoded so far. */
+		private long _decoded;
+
+		/** The block being read. */
+		private byte[] _block = new byte[0];
+
+		/** The position in the block being read. */
+		private int _pos;
+
+		BlockInputStream(DataInputStream in, byte codec, long length, long count, ForkJoinPool pool) {
+			_in = in;
+			_codec = codec;
+			_length = length;
+			_count = count;
+			_pool = pool;
+			_window = 2 * pool.getParallelism();
+		}
+
+		@Override
+		public int read() throws IOException {
+			return next() ? _block[_pos++] & 0xff : -1;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			Objects.checkFromIndexSize(off, len, b.length);
+			if (len == 0) return 0;
+			if (!next()) return -1;
+
+			int n = Math.min(len, _block.length - _pos);
+			System.arraycopy(_block, _pos, b, off, n);
+			_pos += n;
+			return n;
+		}
+
+		@Override
+		public int available() {
+			return _block.length - _pos;
+		}
+
+		@Override
+		public void close() {
+			for (Future<byte[]> block : _decoding)
+				block.cancel(false);
+			_decoding.clear();
+		}
+
+		/**
+		 * Moves to the next block, if the current one was fully read.
+		 *
+		 * @return false at the end of the snapshot
+		 * @throws IOException if there is some error while reading or decoding
+		 */
+		private boolean next() throws IOException {
+			while (_pos == _block.length) {
+				while (_decoding.size() < _window && _read < _count) {
+					int len = readLength(_in, BLOCK_SIZE);
+					byte[] stored = readStored(_in, len);
+					_decoding.add(_pool.submit(() -> {
+						byte[] raw = new byte[len];
+						decode(_codec, stored, raw, 0, len);
+						return raw;
+					}));
+					_read++;
+				}
+
+				Future<byte[]> block = _decoding.poll();
+				if (block == null) {
+					if (_decoded != _length) throw new IOException("truncated snapshot");
+					return false;
+				}
+				_block = join(block);
+				_pos = 0;
+				_decoded += _block.length;
+			}
+			return true;
+		}
+
+		private static byte[] join(Future<byte[]> block) throws IOException {
+			try {
+				return block.get();
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof IOException cause) throw cause;
+				throw new IOException(e.getCause());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException();
+			}
+		}
+	}
+
+	/**
+	 * Writes a block: raw length, stored length and stored bytes.
+	 *
+	 * @param data the data
+	 * @param off the offset of the block in the data
+	 * @param len the length of the block
+	 * @param deflater the compressor (null to store the block as it is)
+	 * @param out where to write
+	 * @return the number of bytes written
+	 * @throws IOException if there is some error while writing
+	 */
+	static int writeBlock(byte[] data, int off, int len, Deflater deflater, DataOutputStream out)
+			throws IOException {
+		out.writeInt(len);
+
+		if (deflater == null) {
+			out.writeInt(len);
+			out.write(data, off, len);
+			return 2 * Integer.BYTES + len;
+		}
+
+		deflater.reset();
+		deflater.setInput(data, off, len);
+		deflater.finish();
+
+		ByteArrayOutputStream stored = new ByteArrayOutputStream(len / 4 + 64);
+		byte[] buf = new byte[8192];
+		while (!deflater.finished()) {
+			int n = deflater.deflate(buf);
+			stored.write(buf, 0, n);
+		}
+
+		out.writeInt(stored.size());
+		stored.writeTo(out);
+		return 2 * Integer.BYTES + stored.size();
+	}
+
+	/**
+	 * Reads a block written by {@link #writeBlock(byte[], int, int, Deflater, DataOutputStream)}.
+	 *
+	 * @param in where to read from
+	 * @param codec the codec of the block
+	 * @return the decoded block
+	 * @throws IOException if there is some error while reading or decoding
+	 */
+	static byte[] readBlock(DataInputStream in, byte codec) throws IOException {
+		int len = readLength(in, MAX_BLOCK_LENGTH);
+		byte[] stored = readStored(in, len);
+
+		byte[] raw = new byte[len];
+		decode(codec, stored, raw, 0, len);
+		return raw;
+	}
+
+	/**
+	 * Reads a length of a block (lengths are checked before anything is allocated, so a
+	 * corrupted file is reported as such).
+	 *
+	 * @param in where to read from
+	 * @param max the largest length accepted
+	 * @return the length
+	 * @throws IOException if there is some error while reading, or the length is out of range
+	 */
+	private static int readLength(DataInputStream in, int max) throws IOException {
+		int len = in.readInt();
+		if (len < 0 || len > max) throw new IOException("corrupted block (length " + len + ")");
+		return len;
+	}
+
+	/**
+	 * Reads the stored bytes of a block (with their length). Compression may expand
+	 * incompressible data, but only slightly.
+	 *
+	 * @param in where to read from
+	 * @param len the raw length of the block
+	 * @return the stored bytes
+	 * @throws IOException if there is some error while reading, or the length is out of range
+	 */
+	private static byte[] readStored(DataInputStream in, int len) throws IOException {
+		byte[] stored = new byte[readLength(in, len + (len >> 8) + 64)];
+		in.readFully(stored);
+		return stored;
+	}
+
+	/**
+	 *
+	 * @param codec the codec of the block
+	 * @param stored the stored bytes of the block
+	 * @param dst where to decode the block
+	 * @param off where to decode the block in dst
+	 * @param len the raw length of the block
+	 * @throws IOException if the block cannot be decoded
+	 */
+	static void decode(byte codec, byte[] stored, byte[] dst, int off, int len) throws IOException {
+		if (off + len > dst.length) throw new IOException("corrupted block");
+
+		if (codec == NONE) {
+			if (stored.length != len) throw new IOException("corrupted block");
+			System.arraycopy(stored, 0, dst, off, len);
+			return;
+		}
+		if (codec != DEFLATE) throw new IOException("unknown codec " + codec);
+
+		Inflater inflater = new Inflater();
+		try {
+			inflater.setInput(stored);
+			int n = 0;
+			while (n < len && !inflater.finished()) {
+				int k = inflater.inflate(dst, off + n, len - n);
+				if (k == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+					throw new IOException("corrupted block");
+				n += k;
+			}
+			if (n != len) throw new IOException("corrupted block");
+		} catch (DataFormatException e) {
+			throw new IOException(e);
+		} finally {
+			inflater.end();
+		}
+	}
+}
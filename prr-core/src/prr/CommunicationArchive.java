@@ -0,0 +1,223 @@
+package prr;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Serial;
+import java.io.Serializable;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.zip.Deflater;
+
+import prr.communications.ArchivedCommunication;
+import prr.communications.Communication;
+import prr.exceptions.TerminalNotFoundException;
+
+/**
+ * On-disk archive of the communications settled in closed billing periods.
+ * <p>
+ * Each closed period is written to its own segment file, with its communications sorted
+ * by id. The records are grouped in blocks of {@value #INDEX_INTERVAL}, each possibly
+ * compressed on its own (see {@link BlockCodec}). Only a sparse index (the position of
+ * each block) is kept in memory: a communication is looked up by reading and decoding
+ * the closest block and scanning it.
+ */
+class CommunicationArchive implements Serializable {
+
+	@Serial private static final long serialVersionUID = 202212011200L;
+
+	/** Marks the beginning of a segment file ("PRRB"), followed by the codec and the count. */
+	private static final int MAGIC = 0x50525242;
+
+	/** Number of records between two entries of the sparse index. */
+	private static final int INDEX_INTERVAL = 64;
+
+	/** A segment file and its sparse index. */
+	private static class Segment implements Serializable {
+
+		@Serial private static final long serialVersionUID = 202212011200L;
+
+		private final String _filename;
+		private final int _count;
+		private final int _firstID;
+		private final int _lastID;
+		private final int[] _indexedIDs;
+		private final long[] _indexedOffsets;
+
+		/** The codec of the blocks. */
+		private final byte _codec;
+
+		Segment(String filename, int count, int firstID, int lastID, int[] indexedIDs, long[] indexedOffsets,
+				byte codec) {
+			_filename = filename;
+			_count = count;
+			_firstID = firstID;
+			_lastID = lastID;
+			_indexedIDs = indexedIDs;
+			_indexedOffsets = indexedOffsets;
+			_codec = codec;
+		}
+
+		boolean mayContain(int id) {
+			return (id >= _firstID && id <= _lastID);
+		}
+	}
+
+	/** The segments, one per closed billing period. */
+	private final List<Segment> _segments = new ArrayList<>();
+
+	/**
+	 *
+	 * @return the number of archived communications
+	 */
+	int size() {
+		return _segments.stream().mapToInt(s -> s._count).sum();
+	}
+
+	/**
+	 * Writes the given communications into a new segment file (none is written if there
+	 * are no communications).
+	 *
+	 * @param filename the name of the segment file
+	 * @param comms the communications to archive (finished and paid), sorted by id
+	 * @param codec the codec of the blocks (see {@link BlockCodec})
+	 * @throws IOException if there is some error while writing the segment
+	 */
+	void append(String filename, Collection<Communication> comms, byte codec) throws IOException {
+		int count = comms.size();
+		if (count == 0) return;
+
+		int[] indexedIDs = new int[(count + INDEX_INTERVAL - 1) / INDEX_INTERVAL];
+		long[] indexedOffsets = new long[indexedIDs.length];
+		int firstID = Integer.MAX_VALUE, lastID = Integer.MIN_VALUE;
+
+		Deflater deflater = (codec == BlockCodec.DEFLATE) ? new Deflater(Deflater.BEST_SPEED) : null;
+		ByteArrayOutputStream block = new ByteArrayOutputStream();
+		DataOutputStream records = new DataOutputStream(block);
+
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename)))) {
+			out.writeInt(MAGIC);
+			out.writeByte(codec);
+			out.writeInt(count);
+			long offset = 2 * Integer.BYTES + 1; // out.size() is an int, so it overflows past 2 GiB
+
+			int i = 0;
+			for (Communication comm : comms) {
+				if (i % INDEX_INTERVAL == 0) {
+					if (block.size() > 0) {
+						offset += BlockCodec.writeBlock(block.toByteArray(), 0, block.size(), deflater, out);
+						block.reset();
+					}
+					indexedIDs[i / INDEX_INTERVAL] = comm.getUID();
+					indexedOffsets[i / INDEX_INTERVAL] = offset;
+				}
+				writeRecord(records, comm);
+				firstID = Math.min(firstID, comm.getUID());
+				lastID = Math.max(lastID, comm.getUID());
+				i++;
+			}
+
+			if (block.size() > 0)
+				BlockCodec.writeBlock(block.toByteArray(), 0, block.size(), deflater, out);
+		} finally {
+			if (deflater != null) deflater.end();
+		}
+
+		_segments.add(new Segment(filename, count, firstID, lastID, indexedIDs, indexedOffsets, codec));
+	}
+
+	/**
+	 * Forgets the last segment written (its file is left as it is, and is overwritten if
+	 * the period is closed again).
+	 */
+	void removeLast() {
+		_segments.remove(_segments.size() - 1);
+	}
+
+	/**
+	 *
+	 * @param id the id of the communication
+	 * @param network the network the communication belongs to
+	 * @return the archived communication (null if not archived)
+	 * @throws IOException if the archive cannot be read (or refers to unknown terminals)
+	 */
+	Communication find(int id, Network network) throws IOException {
+		for (Segment segment : _segments) {
+			if (!segment.mayContain(id)) continue;
+
+			try {
+				Communication comm = read(segment, id, network);
+				if (comm != null) return comm;
+			} catch (TerminalNotFoundException e) {
+				throw new IOException(segment._filename + ": unknown terminal", e);
+			}
+		}
+		return null;
+	}
+
+	private Communication read(Segment segment, int id, Network network)
+			throws IOException, TerminalNotFoundException {
+		int pos = Arrays.binarySearch(segment._indexedIDs, id);
+		if (pos < 0) pos = -pos - 2; // closest indexed record before the id
+		if (pos < 0) return null;
+
+		try (RandomAccessFile file = new RandomAccessFile(segment._filename, "r")) {
+			file.seek(segment._indexedOffsets[pos]);
+			DataInputStream stored = new DataInputStream(new BufferedInputStream(Channels.newInputStream(file.getChannel())));
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(BlockCodec.readBlock(stored, segment._codec)));
+
+			int left = Math.min(INDEX_INTERVAL, segment._count - pos * INDEX_INTERVAL);
+			while (left-- > 0) {
+				int uid = in.readInt();
+				if (uid > id) return null;
+				if (uid == id) return readRecord(in, uid, network);
+				skipRecord(in);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Format: id|type|idSender|idReceiver|units|cost|start|end
+	 */
+	private static void writeRecord(DataOutputStream out, Communication comm) throws IOException {
+		out.writeInt(comm.getUID());
+		out.writeUTF(comm.getType());
+		out.writeUTF(comm.getOrigin().getUID());
+		out.writeUTF(comm.getDestination().getUID());
+		out.writeInt(comm.getUnits());
+		out.writeDouble(comm.getCost());
+		out.writeLong(comm.getStartTime());
+		out.writeLong(comm.getEndTime());
+	}
+
+	private static Communication readRecord(DataInputStream in, int id, Network network)
+			throws IOException, TerminalNotFoundException {
+		String type = in.readUTF();
+		String origin = in.readUTF();
+		String destin = in.readUTF();
+		int units = in.readInt();
+		double cost = in.readDouble();
+		long start = in.readLong();
+		long end = in.readLong();
+
+		return new ArchivedCommunication(id, type, network.getTerminal(origin), network.getTerminal(destin),
+				start, end, units, cost);
+	}
+
+	private static void skipRecord(DataInputStream in) throws IOException {
+		in.readUTF();
+		in.readUTF();
+		in.readUTF();
+		in.skipNBytes(Integer.BYTES + Double.BYTES + 2 * Long.BYTES);
+	}
+}
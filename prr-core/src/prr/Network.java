@@ -5,18 +5,34 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.io.Serial;
 import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.time.Clock;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import prr.clients.Client;
+import prr.clients.LevelAudit;
+import prr.clients.LevelChange;
+import prr.clients.LevelChangeListener;
+import prr.clients.Settlement;
 import prr.communications.Communication;
+import prr.communications.CommunicationFilter;
+import prr.communications.CommunicationIndex;
+import prr.communications.CommunicationResult;
+import prr.communications.CommunicationStatus;
 import prr.communications.InteractiveCommunication;
+import prr.communications.MessageStore;
 import prr.communications.TextCommunication;
 import prr.communications.VideoCommunication;
 import prr.communications.VoiceCommunication;
@@ -30,6 +46,7 @@ import prr.exceptions.DestinationIsBusyException;
 import prr.exceptions.DestinationIsOffException;
 import prr.exceptions.DestinationIsSilentException;
 import prr.exceptions.InvalidCommunicationTypeException;
+import prr.exceptions.InvalidFilterException;
 import prr.exceptions.InvalidTerminalTypeException;
 import prr.exceptions.InvalidTerminalUIDException;
 import prr.exceptions.NotificationsAlreadyDisabledException;
@@ -39,6 +56,8 @@ import prr.exceptions.OriginIsOffException;
 import prr.exceptions.TerminalExistsException;
 import prr.exceptions.TerminalNotFoundException;
 import prr.exceptions.UnrecognizedEntryException;
+import prr.metrics.MetricsRegistry;
+import prr.notifications.NotificationDeliveryStrategy;
 import prr.tariffs.TariffPlan;
 import prr.terminals.BasicTerminal;
 import prr.terminals.FancyTerminal;
@@ -59,6 +78,9 @@ public class Network implements Serializable {
 	/** A Map for registering all the clients by id. */
 	private final Map<String, Client> _clients = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
 
+	/** A List for registering all the clients by handle. */
+	private final List<Client> _clientsByHandle = new ArrayList<>();
+
 	/**
 	 *
 	 * @return all the registered clients
@@ -98,6 +120,17 @@ public class Network implements Serializable {
 		return client;
 	}
 
+	/**
+	 * 
+	 * @param handle the handle of the client.
+	 * @return the respective client.
+	 * @throws ClientNotFoundException if the client was not found
+	 */
+	public Client getClient(int handle) throws ClientNotFoundException {
+		if (handle < 0 || handle >= _clientsByHandle.size()) throw new ClientNotFoundException();
+		return _clientsByHandle.get(handle);
+	}
+
 	/**
 	 *
 	 * @param id the id of the client.
@@ -107,7 +140,12 @@ public class Network implements Serializable {
 	 * @throws ClientExistsException if the id is being used by another client
 	 */
 	public Client registerClient(String id, String name, int taxID) throws ClientExistsException {
-		return registerClient(new Client(this, id, name, taxID));
+		try {
+			return registerClient(new Client(this, _clientsByHandle.size(), id, name, taxID));
+		} catch (ClientExistsException e) {
+			onRejected("registerClient", "CLIENT_EXISTS");
+			throw e;
+		}
 	}
 
 	/**
@@ -118,10 +156,88 @@ public class Network implements Serializable {
 	private Client registerClient(Client client) throws ClientExistsException {
 		if (_clients.putIfAbsent(client.getUID(), client) != null)
 			throw new ClientExistsException();
+		_clientsByHandle.add(client);
+		if (_notificationDeliveryStrategy != null)
+			client.setNotificationDeliveryStrategy(_notificationDeliveryStrategy);
+		_levelAudit.onRegisterClient(client.getLevel());
 		setChanged(true);
 		return client;
 	}
 
+	/** The level population counters and the log of all level changes. */
+	private final LevelAudit _levelAudit = new LevelAudit();
+
+	/** The listeners of the level changes of clients (not saved). */
+	private transient List<LevelChangeListener> _levelChangeListeners;
+
+	/**
+	 * 
+	 * @param level the level (NORMAL, GOLD or PLATINUM, in any case)
+	 * @return the number of clients currently at the given level
+	 */
+	public long countClientsWithLevel(String level) {
+		return _levelAudit.count(level);
+	}
+
+	/**
+	 * 
+	 * @return the number of clients currently at each level (by level name)
+	 */
+	public Map<String, Long> getLevelDistribution() {
+		return _levelAudit.getPopulation();
+	}
+
+	/**
+	 * 
+	 * @return all the level changes of all the clients, oldest first (see {@link LevelAudit})
+	 * @throws IOException if the level changes of the closed billing periods cannot be read
+	 */
+	public List<LevelChange> getLevelChanges() throws IOException {
+		return _levelAudit.getChanges();
+	}
+
+	/**
+	 * 
+	 * @param id the id of the client
+	 * @return all the level changes of the client, oldest first
+	 * @throws ClientNotFoundException if the client was not found
+	 * @throws IOException if the level changes of the closed billing periods cannot be read
+	 */
+	public List<LevelChange> getLevelChanges(String id) throws ClientNotFoundException, IOException {
+		return _levelAudit.getChanges(getClient(id).getUID());
+	}
+
+	/**
+	 * 
+	 * @param listener the listener to be told about every change of level of a client
+	 */
+	public void addLevelChangeListener(LevelChangeListener listener) {
+		if (_levelChangeListeners == null) _levelChangeListeners = new ArrayList<>();
+		_levelChangeListeners.add(listener);
+	}
+
+	/**
+	 * 
+	 * @param listener the listener to remove
+	 */
+	public void removeLevelChangeListener(LevelChangeListener listener) {
+		if (_levelChangeListeners == null) return;
+		_levelChangeListeners.remove(listener);
+	}
+
+	/**
+	 * Called by {@link Client} whenever a client changes level.
+	 * 
+	 * @param change the level change
+	 */
+	public void onClientLevelChange(LevelChange change) {
+		_levelAudit.record(change);
+		setChanged(true);
+
+		if (_levelChangeListeners == null) return;
+		_levelChangeListeners.forEach(l -> l.onLevelChange(change));
+	}
+
 	/**
 	 * 
 	 * @param id the id of the client
@@ -146,6 +262,33 @@ public class Network implements Serializable {
 		setChanged(true);
 	}
 
+	/**
+	 * 
+	 * @param id the id of the client
+	 * @param strategy the delivery strategy to use (null to deliver in app)
+	 * @throws ClientNotFoundException if the client was not found
+	 */
+	public void setNotificationDeliveryStrategy(String id, NotificationDeliveryStrategy strategy)
+			throws ClientNotFoundException {
+		getClient(id).setNotificationDeliveryStrategy(strategy);
+		setChanged(true);
+	}
+
+	/** The delivery strategy given to every client (null to deliver in app). */
+	private NotificationDeliveryStrategy _notificationDeliveryStrategy;
+
+	/**
+	 * Uses the same delivery strategy for all the clients, registered now or later, so
+	 * that their notifications may be delivered together.
+	 * 
+	 * @param strategy the delivery strategy to use (null to deliver in app)
+	 */
+	public void setNotificationDeliveryStrategy(NotificationDeliveryStrategy strategy) {
+		_notificationDeliveryStrategy = strategy;
+		_clients.values().forEach(c -> c.setNotificationDeliveryStrategy(strategy));
+		setChanged(true);
+	}
+
 	/*
 	 * ---- Terminals Management ----
 	 */
@@ -153,6 +296,12 @@ public class Network implements Serializable {
 	/** A Map for registering all the terminals by id. */
 	private final Map<String, Terminal> _terminals = new TreeMap<>();
 
+	/** The terminals not used yet, by id (kept up to date by the terminals). */
+	private final Map<String, Terminal> _unusedTerminals = new TreeMap<>();
+
+	/** The terminals with positive balance, by id (kept up to date by the terminals). */
+	private final Map<String, Terminal> _positiveBalanceTerminals = new TreeMap<>();
+
 	/**
 	 *
 	 * @return all the registered terminals.
@@ -166,7 +315,7 @@ public class Network implements Serializable {
 	 * @return all the registered terminals not used yet (without communications)
 	 */
 	public Collection<Terminal> getUnusedTerminals() {
-		return _terminals.values().stream().filter(Terminal::isUnused).toList();
+		return Collections.unmodifiableCollection(_unusedTerminals.values());
 	}
 
 	/**
@@ -174,7 +323,29 @@ public class Network implements Serializable {
 	 * @return all the registered terminals with positive balance
 	 */
 	public Collection<Terminal> getTerminalsWithPositiveBalance() {
-		return _terminals.values().stream().filter(term -> term.balance() > 0).toList();
+		return Collections.unmodifiableCollection(_positiveBalanceTerminals.values());
+	}
+
+	/**
+	 * Called by {@link Terminal} on its first communication.
+	 * 
+	 * @param term the terminal
+	 */
+	public void onTerminalUsed(Terminal term) {
+		_unusedTerminals.remove(term.getUID());
+	}
+
+	/**
+	 * Called by {@link Terminal} whenever its balance changes from positive to
+	 * non-positive or vice versa.
+	 * 
+	 * @param term the terminal
+	 */
+	public void onTerminalBalanceChange(Terminal term) {
+		if (term.balance() > 0)
+			_positiveBalanceTerminals.put(term.getUID(), term);
+		else
+			_positiveBalanceTerminals.remove(term.getUID());
 	}
 
 	/**
@@ -201,6 +372,26 @@ public class Network implements Serializable {
 	public Terminal registerTerminal(String clientID, String termID, String type)
 			throws ClientNotFoundException, TerminalExistsException,
 				InvalidTerminalTypeException, InvalidTerminalUIDException {
+		try {
+			return doRegisterTerminal(clientID, termID, type);
+		} catch (ClientNotFoundException e) {
+			onRejected("registerTerminal", "CLIENT_NOT_FOUND");
+			throw e;
+		} catch (TerminalExistsException e) {
+			onRejected("registerTerminal", "TERMINAL_EXISTS");
+			throw e;
+		} catch (InvalidTerminalTypeException e) {
+			onRejected("registerTerminal", "INVALID_TYPE");
+			throw e;
+		} catch (InvalidTerminalUIDException e) {
+			onRejected("registerTerminal", "INVALID_ID");
+			throw e;
+		}
+	}
+
+	private Terminal doRegisterTerminal(String clientID, String termID, String type)
+			throws ClientNotFoundException, TerminalExistsException,
+				InvalidTerminalTypeException, InvalidTerminalUIDException {
 		Client client = getClient(clientID);
 
 		Terminal term = switch (type) {
@@ -212,6 +403,7 @@ public class Network implements Serializable {
 		if (_terminals.putIfAbsent(termID, term) != null)
 			throw new TerminalExistsException();
 
+		_unusedTerminals.put(termID, term);
 		client.onRegisterTerminal(termID);
 		setChanged(true);
 		return term;
@@ -221,29 +413,122 @@ public class Network implements Serializable {
 	 * ---- Communications Management ----
 	 */
 
-	/** A List for registering all the communications. */
-	private List<Communication> _comms = new ArrayList<>();
+	/** A Map for registering all the communications (not archived yet) by id. */
+	private final Map<Integer, Communication> _comms = new TreeMap<>();
+
+	/** The id of the last communication registered. */
+	private int _lastCommID;
+
+	/** The time index of all the communications. */
+	private final CommunicationIndex _commsIndex = new CommunicationIndex();
+
+	/** The messages of the text communications (not archived yet), each kept once. */
+	private final MessageStore _messages = new MessageStore();
+
+	/** The clock used to timestamp communications (not saved: the system clock after loading). */
+	private transient Clock _clock;
 
 	/**
 	 * 
-	 * @return all the registered communications
+	 * @return the store of the messages of the text communications (not archived yet)
+	 */
+	public MessageStore getMessageStore() {
+		return _messages;
+	}
+
+	/**
+	 * 
+	 * @return the clock used to timestamp communications
+	 */
+	public Clock getClock() {
+		if (_clock == null) _clock = Clock.systemUTC();
+		return _clock;
+	}
+
+	/**
+	 * 
+	 * @param clock the clock used to timestamp the communications started or finished from now on
+	 */
+	public void setClock(Clock clock) {
+		_clock = clock;
+	}
+
+	/**
+	 * 
+	 * @return all the registered communications (except the ones archived in closed billing periods)
 	 */
 	public Collection<Communication> getCommunications() {
-		return Collections.unmodifiableCollection(_comms);
+		return Collections.unmodifiableCollection(_comms.values());
+	}
+
+	/**
+	 * Looks up a page of the communications (except the ones archived in closed billing
+	 * periods) matching a filter. The candidates are narrowed by the bitmap indexes (for the
+	 * type, status and paid conditions) and then visited by id: the lookup stops as soon as
+	 * the page is full.
+	 * 
+	 * @param filter the filter expression (see {@link CommunicationFilter})
+	 * @param offset the number of matching communications to skip
+	 * @param limit the maximum number of communications to return (all, if not positive)
+	 * @return the matching communications in the requested page
+	 * @throws InvalidFilterException if the filter expression is not valid
+	 */
+	public List<Communication> getCommunications(String filter, int offset, int limit)
+			throws InvalidFilterException {
+		CommunicationFilter predicate = CommunicationFilter.parse(filter);
+		BitSet candidates = predicate.candidates(_commsIndex);
+		Stream<Communication> comms = (candidates == null) ? _comms.values().stream()
+				: candidates.stream().mapToObj(_comms::get).filter(Objects::nonNull);
+
+		Stream<Communication> page = comms.filter(predicate).skip(Math.max(0, offset));
+		return ((limit > 0) ? page.limit(limit) : page).toList();
 	}
 
 	/**
+	 * The communications archived in closed billing periods are read from the archive.
 	 * 
 	 * @param id the id of the communication
 	 * @return the corresponding communication
 	 * @throws CommunicationNotFoundException if the communication was not found
+	 * @throws IOException if the communication may be archived, but the archive cannot be read
 	 */
-	public Communication getCommunication(int id) throws CommunicationNotFoundException {
-		Communication comm = _comms.get(id - 1);
+	public Communication getCommunication(int id) throws CommunicationNotFoundException, IOException {
+		Communication comm = _comms.get(id);
+		if (comm == null) comm = _archive.find(id, this);
 		if (comm == null) throw new CommunicationNotFoundException();
 		return comm;
 	}
 
+	/**
+	 * Same as {@link #getCommunication(int)}, but without throwing when the communication
+	 * is not found (for internal lookups, where a missing communication is not an error).
+	 * 
+	 * @param id the id of the communication
+	 * @return the corresponding communication (null if not found)
+	 * @throws UncheckedIOException if the communication may be archived, but the archive cannot be read
+	 */
+	public Communication findCommunication(int id) throws UncheckedIOException {
+		Communication comm = _comms.get(id);
+		if (comm != null) return comm;
+
+		try {
+			return _archive.find(id, this);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * 
+	 * @param ids the ids of the communications
+	 * @return the corresponding communications (including archived ones), in the same order
+	 */
+	private Collection<Communication> getCommunications(IntStream ids) {
+		return ids.mapToObj(this::findCommunication)
+				.filter(Objects::nonNull) // the archive is not available
+				.toList();
+	}
+
 	/**
 	 * 
 	 * @param id the id of the client
@@ -264,6 +549,117 @@ public class Network implements Serializable {
 		return getClient(id).getInbox();
 	}
 
+	/**
+	 * 
+	 * @param from the start of the window (inclusive, in milliseconds since the epoch)
+	 * @param to the end of the window (exclusive, in milliseconds since the epoch)
+	 * @return all the communications started in the given window
+	 */
+	public Collection<Communication> getCommunicationsBetween(long from, long to) {
+		return getCommunications(_commsIndex.between(from, to));
+	}
+
+	/**
+	 * 
+	 * @param type the type of the communications (TEXT, VOICE or VIDEO)
+	 * @param from the start of the window (inclusive, in milliseconds since the epoch)
+	 * @param to the end of the window (exclusive, in milliseconds since the epoch)
+	 * @return all the communications of the given type started in the given window
+	 */
+	public Collection<Communication> getCommunicationsBetween(String type, long from, long to) {
+		return getCommunications(_commsIndex.between(type, from, to));
+	}
+
+	/**
+	 * 
+	 * @return all the ongoing interactive communications, by start time
+	 */
+	public Collection<Communication> getOngoingCommunications() {
+		return getCommunications(_commsIndex.ongoing());
+	}
+
+	/**
+	 * 
+	 * @param duration the minimum duration (in milliseconds)
+	 * @return all the interactive communications that have been ongoing for at least the given duration
+	 */
+	public Collection<Communication> getOngoingCommunicationsLongerThan(long duration) {
+		return getCommunications(_commsIndex.ongoingLongerThan(duration, getClock().millis()));
+	}
+
+	/**
+	 * 
+	 * @param ids the ids of the communications (e.g. combined from the bitmap indexes)
+	 * @return the corresponding communications, in order
+	 */
+	public Collection<Communication> getCommunications(BitSet ids) {
+		return getCommunications(ids.stream());
+	}
+
+	/**
+	 * 
+	 * @param type the type of the communications (TEXT, VOICE or VIDEO)
+	 * @return the ids of all the communications of the given type (a copy, which may be modified)
+	 */
+	public BitSet getCommunicationIDsOfType(String type) {
+		return _commsIndex.ofType(type);
+	}
+
+	/**
+	 * 
+	 * @param status the status of the communications
+	 * @return the ids of all the communications with the given status (a copy, which may be modified)
+	 */
+	public BitSet getCommunicationIDsWithStatus(CommunicationStatus status) {
+		return _commsIndex.withStatus(status);
+	}
+
+	/**
+	 * 
+	 * @param paid whether to look for the paid or the unpaid communications
+	 * @return the ids of all the paid (or unpaid) communications (a copy, which may be modified)
+	 */
+	public BitSet getPaidCommunicationIDs(boolean paid) {
+		return _commsIndex.paid(paid);
+	}
+
+	/**
+	 * Called by {@link Terminal} when a communication started by it ends.
+	 * 
+	 * @param comm the communication
+	 */
+	public void onEndCommunication(Communication comm) {
+		_commsIndex.onFinish(comm);
+		metrics().onFinishCommunication(comm.getType());
+		setChanged(true);
+	}
+
+	/**
+	 * Called by {@link Terminal} when a communication sent/started by it is paid.
+	 * 
+	 * @param comm the communication
+	 */
+	public void onPerformPayment(Communication comm) {
+		_commsIndex.onPerformPayment(comm);
+		metrics().onPay(1);
+		setChanged(true);
+	}
+
+	/*
+	 * Cached rejections: they hold no state (and no stack trace), so they can be shared.
+	 */
+	private static final TerminalNotFoundException TERMINAL_NOT_FOUND = new TerminalNotFoundException();
+	private static final InvalidCommunicationTypeException INVALID_TYPE = new InvalidCommunicationTypeException();
+	private static final CommunicationTypeUnsupportedAtOriginException UNSUPPORTED_AT_ORIGIN =
+			new CommunicationTypeUnsupportedAtOriginException();
+	private static final CommunicationTypeUnsupportedAtDestinationException UNSUPPORTED_AT_DESTINATION =
+			new CommunicationTypeUnsupportedAtDestinationException();
+	private static final OriginIsOffException ORIGIN_OFF = new OriginIsOffException();
+	private static final OriginIsBusyException ORIGIN_BUSY = new OriginIsBusyException();
+	private static final DestinationIsOffException DESTINATION_OFF = new DestinationIsOffException();
+	private static final DestinationIsBusyException DESTINATION_BUSY = new DestinationIsBusyException();
+	private static final DestinationIsSilentException DESTINATION_SILENT = new DestinationIsSilentException();
+
 	/**
 	 * 
 	 * @param originID the id of the origin terminal
@@ -278,21 +674,55 @@ public class Network implements Serializable {
 	public TextCommunication sendTextCommunication(String originID, String destinID, String msg)
 			throws TerminalNotFoundException, DestinationIsOffException,
             	OriginIsOffException, OriginIsBusyException {
-		Terminal origin = getTerminal(originID);
-		Terminal destin = getTerminal(destinID);
+		return switch (trySendTextCommunication(originID, destinID, msg)) {
+			case OK -> (TextCommunication) _comms.get(_lastCommID);
+			case TERMINAL_NOT_FOUND -> throw TERMINAL_NOT_FOUND;
+			case ORIGIN_OFF -> throw ORIGIN_OFF;
+			case ORIGIN_BUSY -> throw ORIGIN_BUSY;
+			case DESTINATION_OFF -> throw DESTINATION_OFF;
+			default -> throw new IllegalStateException(); // not a result of sending texts
+		};
+	}
+
+	/**
+	 * Same as {@link #sendTextCommunication(String, String, String)}, but reports rejections
+	 * as results instead of exceptions (the communication sent is the last one registered).
+	 * 
+	 * @param originID the id of the origin terminal
+	 * @param destinID the id of the destination terminal
+	 * @param msg the message to be sent
+	 * @return OK, TERMINAL_NOT_FOUND, ORIGIN_OFF, ORIGIN_BUSY or DESTINATION_OFF
+	 */
+	public CommunicationResult trySendTextCommunication(String originID, String destinID, String msg) {
+		long start = System.nanoTime();
+		CommunicationResult result = doSendTextCommunication(originID, destinID, msg);
+
+		metrics().onSendTextCommunication(result, System.nanoTime() - start);
+		return result;
+	}
+
+	private CommunicationResult doSendTextCommunication(String originID, String destinID, String msg) {
+		finishStuckCommunicationsIfDue();
+
+		Terminal origin = _terminals.get(originID);
+		Terminal destin = _terminals.get(destinID);
+
+		if (origin == null || destin == null) return CommunicationResult.TERMINAL_NOT_FOUND;
 		
-		if (origin.isOff()) throw new OriginIsOffException();
-		if (origin.isBusy()) throw new OriginIsBusyException();
+		if (origin.isOff()) return CommunicationResult.ORIGIN_OFF;
+		if (origin.isBusy()) return CommunicationResult.ORIGIN_BUSY;
 		
 		if (destin.isOff()) {
 			destin.onTextCommunicationAttempt(origin.getOwner());
-			throw new DestinationIsOffException();
+			return CommunicationResult.DESTINATION_OFF;
 		}
 					
-		int id = _comms.size() + 1;
-		TextCommunication comm = new TextCommunication(id, origin, destin, msg);
+		int id = _lastCommID + 1;
+		TextCommunication comm = new TextCommunication(id, origin, destin, _messages.acquire(msg), getClock().millis());
 
-		_comms.add(comm);
+		_comms.put(id, comm);
+		_lastCommID = id;
+		_commsIndex.add(comm);
 			
 		destin.onTextCommunication(id);
 		origin.onTextCommunication(id);
@@ -300,7 +730,7 @@ public class Network implements Serializable {
 		origin.getOwner().onTextCommunication(id);
 
 		setChanged(true);
-		return comm;
+		return CommunicationResult.OK;
 	}
 
 	/**
@@ -325,35 +755,76 @@ public class Network implements Serializable {
 				CommunicationTypeUnsupportedAtDestinationException,
 				DestinationIsOffException, DestinationIsBusyException, DestinationIsSilentException,
 				OriginIsOffException, OriginIsBusyException {
-		Terminal origin = getTerminal(originID);
-		Terminal destin = getTerminal(destinID);
+		return switch (tryStartInteractiveCommunication(originID, destinID, type)) {
+			case OK -> (InteractiveCommunication) _comms.get(_lastCommID);
+			case TERMINAL_NOT_FOUND -> throw TERMINAL_NOT_FOUND;
+			case INVALID_TYPE -> throw INVALID_TYPE;
+			case UNSUPPORTED_AT_ORIGIN -> throw UNSUPPORTED_AT_ORIGIN;
+			case UNSUPPORTED_AT_DESTINATION -> throw UNSUPPORTED_AT_DESTINATION;
+			case ORIGIN_OFF -> throw ORIGIN_OFF;
+			case ORIGIN_BUSY -> throw ORIGIN_BUSY;
+			case DESTINATION_OFF -> throw DESTINATION_OFF;
+			case DESTINATION_BUSY -> throw DESTINATION_BUSY;
+			case DESTINATION_SILENT -> throw DESTINATION_SILENT;
+		};
+	}
+
+	/**
+	 * Same as {@link #startInteractiveCommunication(String, String, String)}, but reports
+	 * rejections as results instead of exceptions (the communication started is the last
+	 * one registered).
+	 * 
+	 * @param originID the id of the origin terminal
+	 * @param destinID the id of the destination terminal
+	 * @param type the type of the interactive communication (may be VOICE or VIDEO)
+	 * @return OK or the reason of the rejection
+	 */
+	public CommunicationResult tryStartInteractiveCommunication(String originID, String destinID, String type) {
+		long start = System.nanoTime();
+		CommunicationResult result = doStartInteractiveCommunication(originID, destinID, type);
+
+		metrics().onStartInteractiveCommunication(type, result, System.nanoTime() - start);
+		return result;
+	}
+
+	private CommunicationResult doStartInteractiveCommunication(String originID, String destinID, String type) {
+		finishStuckCommunicationsIfDue();
+
+		Terminal origin = _terminals.get(originID);
+		Terminal destin = _terminals.get(destinID);
+
+		if (origin == null || destin == null) return CommunicationResult.TERMINAL_NOT_FOUND;
         
         if (!origin.isCommunicationTypeSupported(type))
-            throw new CommunicationTypeUnsupportedAtOriginException();
+            return CommunicationResult.UNSUPPORTED_AT_ORIGIN;
             
         if (!destin.isCommunicationTypeSupported(type))
-            throw new CommunicationTypeUnsupportedAtDestinationException();
+            return CommunicationResult.UNSUPPORTED_AT_DESTINATION;
 
-		if (origin == destin) throw new DestinationIsBusyException();
-		if (origin.isOff()) throw new OriginIsOffException();
-		if (origin.isBusy()) throw new OriginIsBusyException();
+		if (origin == destin) return CommunicationResult.DESTINATION_BUSY;
+		if (origin.isOff()) return CommunicationResult.ORIGIN_OFF;
+		if (origin.isBusy()) return CommunicationResult.ORIGIN_BUSY;
 
 		if (!destin.isIdle()) {
 			destin.onInteractiveCommunicationAttempt(origin.getOwner());
 			
-			if (destin.isOff()) throw new DestinationIsOffException();
-			if (destin.isBusy()) throw new DestinationIsBusyException();
-			if (destin.isSilent()) throw new DestinationIsSilentException();
+			if (destin.isOff()) return CommunicationResult.DESTINATION_OFF;
+			if (destin.isBusy()) return CommunicationResult.DESTINATION_BUSY;
+			if (destin.isSilent()) return CommunicationResult.DESTINATION_SILENT;
 		}
 
-        int id = _comms.size() + 1;
+        int id = _lastCommID + 1;
         InteractiveCommunication comm = switch (type) {
-            case "VIDEO" -> new VideoCommunication(id, origin, destin);
-            case "VOICE" -> new VoiceCommunication(id, origin, destin);
-            default -> throw new InvalidCommunicationTypeException();
+            case "VIDEO" -> new VideoCommunication(id, origin, destin, getClock().millis());
+            case "VOICE" -> new VoiceCommunication(id, origin, destin, getClock().millis());
+            default -> null;
         };
 
-        _comms.add(comm);
+        if (comm == null) return CommunicationResult.INVALID_TYPE;
+
+        _comms.put(id, comm);
+        _lastCommID = id;
+        _commsIndex.add(comm);
 
 		destin.onStartInteractiveCommunication(id);
 		origin.onStartInteractiveCommunication(id);
@@ -361,7 +832,91 @@ public class Network implements Serializable {
 		origin.getOwner().onStartInteractiveCommunication(id);
 
 		setChanged(true);
-		return comm;
+		return CommunicationResult.OK;
+	}
+
+	/*
+	 * ---- Stuck Communications ----
+	 */
+
+	/** The maximum duration of an interactive communication, in milliseconds (0 for no limit). */
+	private long _maxCommDuration;
+
+	/** The time between two checks for stuck communications, in milliseconds. */
+	private long _stuckCommsCheckPeriod;
+
+	/** The time of the next check for stuck communications. */
+	private long _nextStuckCommsCheck = Long.MAX_VALUE;
+
+	/** The number of communications finished for exceeding the maximum duration. */
+	private int _finishedStuckComms;
+
+	/**
+	 * The ongoing communications are checked when communications are sent or started (never
+	 * when they are only listed), at most once per period: the ones exceeding the maximum duration are finished, as if
+	 * they had lasted exactly that long, so that their terminals do not stay busy forever.
+	 * 
+	 * @param maxDuration the maximum duration of an interactive communication, in milliseconds (0 for no limit)
+	 * @param period the time between two checks, in milliseconds
+	 */
+	public void setMaxCommunicationDuration(long maxDuration, long period) {
+		_maxCommDuration = Math.max(0, maxDuration);
+		_stuckCommsCheckPeriod = Math.max(0, period);
+		_nextStuckCommsCheck = (_maxCommDuration > 0) ? getClock().millis() : Long.MAX_VALUE;
+	}
+
+	/**
+	 * 
+	 * @return the maximum duration of an interactive communication, in milliseconds (0 for no limit)
+	 */
+	public long getMaxCommunicationDuration() {
+		return _maxCommDuration;
+	}
+
+	/**
+	 * 
+	 * @return the number of ongoing communications exceeding the maximum duration
+	 */
+	public int countStuckCommunications() {
+		if (_maxCommDuration == 0) return 0;
+		return (int) _commsIndex.ongoingLongerThan(_maxCommDuration, getClock().millis()).count();
+	}
+
+	/**
+	 * 
+	 * @return the number of communications finished so far for exceeding the maximum duration
+	 */
+	public int getFinishedStuckCommunicationsCount() {
+		return _finishedStuckComms;
+	}
+
+	/**
+	 * Finishes the ongoing communications exceeding the maximum duration.
+	 * 
+	 * @return the number of communications finished
+	 */
+	public int finishStuckCommunications() {
+		if (_maxCommDuration == 0) return 0;
+
+		int units = (int) Math.max(1, Math.ceil(_maxCommDuration / 60000.0)); // minutes
+		long now = getClock().millis();
+		int count = 0;
+
+		for (Communication comm : getOngoingCommunicationsLongerThan(_maxCommDuration)) {
+			comm.finish(units, now);
+			count++;
+		}
+
+		_finishedStuckComms += count;
+		metrics().onFinishStuckCommunications(count);
+		_nextStuckCommsCheck = now + _stuckCommsCheckPeriod;
+		if (count > 0) setChanged(true);
+		return count;
+	}
+
+	private void finishStuckCommunicationsIfDue() {
+		if (getClock().millis() >= _nextStuckCommsCheck)
+			finishStuckCommunications();
 	}
 
 	/*
@@ -392,6 +947,147 @@ public class Network implements Serializable {
 		return getClients().stream().mapToDouble(Client::debts).sum();
 	}
 
+	/** The journal of the settlements (oldest first). */
+	private final List<Settlement> _settlements = new ArrayList<>();
+
+	/**
+	 * 
+	 * @return the journal of the settlements (oldest first)
+	 */
+	public List<Settlement> getSettlements() {
+		return Collections.unmodifiableList(_settlements);
+	}
+
+	/**
+	 * Pays all the debts of a client at once.
+	 * 
+	 * @param id the id of the client
+	 * @return the settlement (recorded in the journal)
+	 * @throws ClientNotFoundException if the client was not found
+	 */
+	public Settlement settleClientDebts(String id) throws ClientNotFoundException {
+		return settleClientDebts(id, 1, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Pays the debts of a client in a range of communications at once: the totals are
+	 * updated and the level of the client is evaluated once for the whole range.
+	 * 
+	 * @param id the id of the client
+	 * @param fromID the id of the first communication to pay
+	 * @param toID the id of the last communication to pay
+	 * @return the settlement (recorded in the journal)
+	 * @throws ClientNotFoundException if the client was not found
+	 */
+	public Settlement settleClientDebts(String id, int fromID, int toID) throws ClientNotFoundException {
+		Client client = getClient(id);
+		return settleDebts(client, null, fromID, toID);
+	}
+
+	/**
+	 * Pays all the debts of a terminal at once.
+	 * 
+	 * @param id the id of the terminal
+	 * @return the settlement (recorded in the journal)
+	 * @throws TerminalNotFoundException if the terminal was not found
+	 */
+	public Settlement settleTerminalDebts(String id) throws TerminalNotFoundException {
+		return settleTerminalDebts(id, 1, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Pays the debts of a terminal in a range of communications at once (see
+	 * {@link #settleClientDebts(String, int, int)}).
+	 * 
+	 * @param id the id of the terminal
+	 * @param fromID the id of the first communication to pay
+	 * @param toID the id of the last communication to pay
+	 * @return the settlement (recorded in the journal)
+	 * @throws TerminalNotFoundException if the terminal was not found
+	 */
+	public Settlement settleTerminalDebts(String id, int fromID, int toID) throws TerminalNotFoundException {
+		Terminal term = getTerminal(id);
+		return settleDebts(term.getOwner(), term, fromID, toID);
+	}
+
+	private Settlement settleDebts(Client client, Terminal term, int fromID, int toID) {
+		List<Communication> settled = client.settleDebts(fromID, toID, (term != null) ? term.getUID() : null);
+
+		settled.stream()
+				.collect(Collectors.groupingBy(Communication::getOrigin))
+				.forEach(Terminal::onSettleDebts);
+		settled.forEach(_commsIndex::onPerformPayment);
+
+		double amount = settled.stream().mapToDouble(Communication::getCost).sum();
+		Settlement settlement = new Settlement(client.getUID(), (term != null) ? term.getUID() : null,
+				fromID, toID, settled.size(), amount);
+
+		_settlements.add(settlement);
+		metrics().onSettle(settled.size());
+		setChanged(true);
+		return settlement;
+	}
+
+	/*
+	 * ---- Billing Periods ----
+	 */
+
+	/** The current billing period (the first one is 1). */
+	private int _billingPeriod = 1;
+
+	/** The communications settled in closed billing periods. */
+	private final CommunicationArchive _archive = new CommunicationArchive();
+
+	/**
+	 * 
+	 * @return the current billing period (the first one is 1)
+	 */
+	public int getBillingPeriod() {
+		return _billingPeriod;
+	}
+
+	/**
+	 * 
+	 * @return the number of communications archived in closed billing periods
+	 */
+	public int getArchivedCommunicationsCount() {
+		return _archive.size();
+	}
+
+	/**
+	 * Closes the current billing period. The paid communications are summarized for each client
+	 * (see {@link Client#getBillingPeriods()}) and moved to the given archive file, after which
+	 * they are only available through {@link #getCommunication(int)}. Payments and balances are
+	 * not affected. The level changes of the period are moved to a file named after the archive
+	 * (see {@link LevelAudit#archive(String)}).
+	 * 
+	 * @param archiveFilename the name of the file where the paid communications are archived
+	 * @param codec the codec of the archive (see {@link BlockCodec})
+	 * @return the number of communications archived
+	 * @throws IOException if there is some error while writing the archive (nothing is closed)
+	 */
+	int closeBillingPeriod(String archiveFilename, byte codec) throws IOException {
+		List<Communication> settled = _comms.values().stream().filter(Communication::isPaid).toList();
+
+		_archive.append(archiveFilename, settled, codec);
+		try {
+			_levelAudit.archive(archiveFilename + ".levels");
+		} catch (IOException e) {
+			if (!settled.isEmpty()) _archive.removeLast(); // nothing is closed
+			throw e;
+		}
+
+		_clients.values().forEach(c -> c.onCloseBillingPeriod(_billingPeriod));
+		_terminals.values().forEach(Terminal::onCloseBillingPeriod);
+		settled.forEach(c -> _comms.remove(c.getUID()));
+		settled.stream().filter(TextCommunication.class::isInstance)
+				.forEach(c -> _messages.release(((TextCommunication) c).getMessage()));
+
+		_billingPeriod++;
+		setChanged(true);
+		return settled.size();
+	}
+
 	/*
 	 * ---- Plans Management ----
 	 */
@@ -492,6 +1188,65 @@ public class Network implements Serializable {
 		}
 	}
 
+	/*
+	 * ---- Metrics ----
+	 */
+
+	/** The metrics of the operations (not saved). */
+	private transient MetricsRegistry _metrics;
+
+	/** The metrics of the operations, resolved from {@link #_metrics} (not saved). */
+	private transient NetworkMetrics _resolvedMetrics;
+
+	/**
+	 * 
+	 * @return the metrics of the operations of this network
+	 */
+	public MetricsRegistry getMetrics() {
+		if (_metrics == null) _metrics = new MetricsRegistry();
+		return _metrics;
+	}
+
+	/**
+	 * 
+	 * @param metrics where to record the metrics of the operations of this network
+	 */
+	public void setMetrics(MetricsRegistry metrics) {
+		_metrics = metrics;
+		_resolvedMetrics = null;
+		metrics().publish(this);
+	}
+
+	private NetworkMetrics metrics() {
+		if (_resolvedMetrics == null) _resolvedMetrics = new NetworkMetrics(getMetrics());
+		return _resolvedMetrics;
+	}
+
+	/**
+	 * Counts a rejected operation, by reason. Reasons are named like the results of the
+	 * communications (see {@link CommunicationResult}), e.g. CLIENT_EXISTS.
+	 * 
+	 * @param operation the name of the operation
+	 * @param reason the reason of the rejection
+	 */
+	private void onRejected(String operation, String reason) {
+		metrics().onRejected(operation, reason);
+	}
+
+	/**
+	 * Called by {@link Terminal} after each friend or state operation (addFriend,
+	 * removeFriend, turnOn, turnOff or silence).
+	 * 
+	 * @param operation the name of the operation
+	 * @param rejection the reason the operation was rejected (null if it was done)
+	 */
+	public void onTerminalOperation(String operation, String rejection) {
+		if (rejection == null)
+			metrics().onOperation(operation);
+		else
+			metrics().onRejected(operation, rejection);
+	}
+
 	/*
 	 * ---- IO ----
 	 */
@@ -513,6 +1268,7 @@ public class Network implements Serializable {
 	 */
 	void setChanged(boolean changed) {
 		_changed = changed;
+		if (changed) metrics().publish(this);
 	}
 
 	/**
@@ -1,18 +1,25 @@
 package prr;
 
 import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import prr.exceptions.ImportFileException;
 import prr.exceptions.MissingFileAssociationException;
 import prr.exceptions.UnavailableFileException;
 import prr.exceptions.UnrecognizedEntryException;
+import prr.metrics.MetricsRegistry;
 
 //FIXME add more import if needed (cannot import from pt.tecnico or prr.app)
 
@@ -27,6 +34,33 @@ public class NetworkManager {
 	/** The name of the file associated with this manager. */
 	private String _filename;
 
+	/** The maximum duration of interactive communications, in milliseconds (0 for no limit). */
+	private long _maxCommDuration;
+
+	/** The time between two checks for stuck communications, in milliseconds. */
+	private long _stuckCommsCheckPeriod;
+
+	/** The codec of the saved snapshots and archives (see {@link BlockCodec}). */
+	private byte _codec = BlockCodec.NONE;
+
+	/** Where the blocks of the loaded snapshots are decoded. */
+	private ForkJoinPool _loadPool = ForkJoinPool.commonPool();
+
+	/** The metrics of the network operations and of load/save (kept across loads). */
+	private final MetricsRegistry _metrics = new MetricsRegistry();
+
+	public NetworkManager() {
+		_network.setMetrics(_metrics); // also registers the gauges of the network
+	}
+
+	/**
+	 *
+	 * @return the metrics of the network operations and of load/save
+	 */
+	public MetricsRegistry getMetrics() {
+		return _metrics;
+	}
+
 	/**
 	 *
 	 * @return the network held by this manager.
@@ -45,39 +79,251 @@ public class NetworkManager {
 	}
 
 	/**
+	 * Limits the duration of the interactive communications of the current network and
+	 * of the networks loaded from now on.
+	 *
+	 * @param maxDuration the maximum duration, in milliseconds (0 for no limit)
+	 * @param period the time between two checks for stuck communications, in milliseconds
+	 * @see Network#setMaxCommunicationDuration(long, long)
+	 */
+	public void setMaxCommunicationDuration(long maxDuration, long period) {
+		_maxCommDuration = maxDuration;
+		_stuckCommsCheckPeriod = period;
+		_network.setMaxCommunicationDuration(maxDuration, period);
+	}
+
+	/**
+	 * Snapshots and archives are always loaded whatever their codec (the codec is declared
+	 * in their headers), including legacy snapshots (not compressed, without header).
+	 *
+	 * @param codec the codec of the snapshots and archives written from now on ("none" or "deflate")
+	 * @throws IllegalArgumentException if the codec is unknown
+	 */
+	public void setCodec(String codec) throws IllegalArgumentException {
+		_codec = BlockCodec.codecOf(codec);
+	}
+
+	/**
+	 * By default, the blocks of the loaded snapshots are decoded on the common fork/join pool.
+	 *
+	 * @param parallelism the number of threads decoding the blocks of the loaded snapshots
+	 *        (0 to use the common pool)
+	 * @throws IllegalArgumentException if the parallelism is negative
+	 */
+	public void setLoadParallelism(int parallelism) throws IllegalArgumentException {
+		if (parallelism < 0) throw new IllegalArgumentException();
+		if (_loadPool != ForkJoinPool.commonPool()) _loadPool.shutdown();
+		_loadPool = (parallelism == 0) ? ForkJoinPool.commonPool() : new ForkJoinPool(parallelism);
+	}
+
+	/**
+	 * The last snapshot is written to disk before loading (see {@link #awaitPendingSave()}).
+	 *
 	 * @param filename name of the file containing the serialized application's state
 	 *        to load.
 	 * @throws UnavailableFileException if the specified file does not exist or there is
 	 *         an error while processing this file.
+	 * @throws IOException if there was some error while writing the last snapshot (nothing
+	 *         is loaded: the current network is kept, and is marked as changed).
 	 */
-	public void load(String filename) throws UnavailableFileException {
+	public void load(String filename) throws UnavailableFileException, IOException {
+		awaitPendingSave();
+
 		setFilename(filename);
+		long start = System.nanoTime();
 
-		try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(filename)))) {
-			_network = (Network) in.readObject();
-		} catch (IOException | ClassNotFoundException e) {
+		try (BufferedInputStream file = new BufferedInputStream(new FileInputStream(filename))) {
+			ObjectInputStream in = new ObjectInputStream(BlockCodec.readSnapshot(file, _loadPool));
+			_network = onSerializationThread(() -> {
+				try {
+					return (Network) in.readObject();
+				} catch (ClassNotFoundException e) {
+					throw new IOException(e);
+				}
+			});
+			_network.setMetrics(_metrics);
+			if (_maxCommDuration > 0)
+				_network.setMaxCommunicationDuration(_maxCommDuration, _stuckCommsCheckPeriod);
+		} catch (IOException e) {
+			_metrics.counter("load.failed").increment();
 			throw new UnavailableFileException(filename);
 		}
+
+		_metrics.histogram("latency.load").record(System.nanoTime() - start);
+		_metrics.counter("load.bytes").add(sizeOf(filename));
 	}
 
+	/** The thread writing the last snapshot to disk (null if none). */
+	private Thread _pendingSave;
+
+	/** The error of the last write to disk (null if none, or if already reported). */
+	private volatile IOException _saveFailure;
+
 	/**
 	 * Saves the serialized application's state into the file associated to the current network.
+	 * <p>
+	 * The network is serialized while the caller waits: that snapshot is consistent, and the
+	 * network may change as soon as this method returns. The serialized network is cut into
+	 * blocks, which a background thread compresses and writes to a temporary file as they
+	 * are produced (only a few blocks are held in memory). Once complete, the temporary file
+	 * is atomically renamed to the file associated to the network, so the file is always
+	 * either the previous or the new snapshot. Errors while writing are reported by the next
+	 * save (or by {@link #awaitPendingSave()}).
 	 *
 	 * @throws FileNotFoundException if for some reason the file cannot be created or opened.
 	 * @throws MissingFileAssociationException if the current network does not have a file.
 	 * @throws IOException if there is some error while serializing the state of the network to disk.
 	 */
 	public void save() throws FileNotFoundException, MissingFileAssociationException, IOException {
+		awaitPendingSave();
+
 		if (!_network.isChanged()) return;
 
 		if ((_filename == null) || _filename.isBlank())
 			throw new MissingFileAssociationException();
 
-		try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(_filename))))  {
-			out.writeObject(_network);
+		long start = System.nanoTime();
+
+		Path file = Path.of(_filename);
+		Path tmp = Path.of(_filename + ".tmp");
+		FileOutputStream out = new FileOutputStream(tmp.toFile()); // fails here if the file cannot be created
+
+		BlockCodec.BlockOutputStream snapshot = new BlockCodec.BlockOutputStream();
+		byte codec = _codec;
+		_pendingSave = new Thread(() -> write(snapshot, codec, out, tmp, file), "network-save");
+		_pendingSave.start();
+
+		try {
+			onSerializationThread(() -> {
+				ObjectOutputStream oos = new ObjectOutputStream(snapshot);
+				oos.writeObject(_network);
+				oos.close(); // hands over the last block (not on failure: the snapshot is aborted)
+				return null;
+			});
+		} catch (IOException | RuntimeException | Error e) {
+			snapshot.abort();
+			join(_pendingSave);
+			_pendingSave = null;
+			throw e;
 		}
-		
+
 		_network.setChanged(false);
+		_metrics.histogram("latency.save").record(System.nanoTime() - start);
+		_metrics.counter("save.bytes").add(snapshot.length());
+	}
+
+	/**
+	 * Writes a snapshot (compressed with the given codec) to a temporary file as it is
+	 * serialized, and renames it to its final name (removes it if the snapshot fails).
+	 * Runs on the background thread of a save.
+	 */
+	private void write(BlockCodec.BlockOutputStream snapshot, byte codec, FileOutputStream out, Path tmp, Path file) {
+		long start = System.nanoTime();
+
+		try {
+			try (out) {
+				BlockCodec.writeSnapshot(snapshot, codec, out);
+			}
+
+			try {
+				Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} catch (IOException e) {
+			try {
+				Files.deleteIfExists(tmp);
+			} catch (IOException ignored) { /* just ignore (overwritten by the next save) */ }
+			if (snapshot.isAborted()) return; // reported by the save itself
+
+			_saveFailure = e;
+			_metrics.counter("save.failed").increment();
+		}
+
+		_metrics.histogram("latency.save.write").record(System.nanoTime() - start);
+	}
+
+	/**
+	 * Waits until the last snapshot is written to disk (if still being written).
+	 *
+	 * @throws IOException if there was some error while writing the last snapshot (the
+	 *         network is then marked as changed, so it is saved again on the next save).
+	 */
+	public void awaitPendingSave() throws IOException {
+		if (_pendingSave != null) {
+			join(_pendingSave);
+			_pendingSave = null;
+		}
+
+		IOException failure = _saveFailure;
+		if (failure == null) return;
+
+		_saveFailure = null;
+		_network.setChanged(true);
+		throw failure;
+	}
+
+	/**
+	 * Waits for a thread to die (an interruption is only reported after that).
+	 */
+	private static void join(Thread thread) {
+		boolean interrupted = false;
+		while (thread.isAlive()) {
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) Thread.currentThread().interrupt();
+	}
+
+	/**
+	 * The stack size of the threads (de)serializing networks: clients, terminals and
+	 * communications reference each other, and are (de)serialized recursively, so the
+	 * depth grows with the network.
+	 */
+	private static final long SERIALIZATION_STACK_SIZE = 1L << 30;
+
+	/** A step of a load or save, run by {@link #onSerializationThread(SerializationStep)}. */
+	private interface SerializationStep<T> {
+		T run() throws IOException;
+	}
+
+	/**
+	 * Runs a step of a load or save on a thread with a large stack, and waits for it.
+	 *
+	 * @param step the step to run
+	 * @return the result of the step
+	 * @throws IOException if the step fails with an IOException (or overflows the stack)
+	 */
+	private static <T> T onSerializationThread(SerializationStep<T> step) throws IOException {
+		List<T> result = new ArrayList<>(1);
+		Throwable[] failure = { null };
+
+		Thread thread = new Thread(null, () -> {
+			try {
+				result.add(step.run());
+			} catch (Throwable e) {
+				failure[0] = e;
+			}
+		}, "network-serialization", SERIALIZATION_STACK_SIZE);
+		thread.start();
+		join(thread);
+
+		if (failure[0] instanceof IOException e) throw e;
+		if (failure[0] instanceof StackOverflowError e) throw new IOException("network too deep", e);
+		if (failure[0] instanceof RuntimeException e) throw e;
+		if (failure[0] instanceof Error e) throw e;
+		return result.get(0);
+	}
+
+	private static long sizeOf(String filename) {
+		try {
+			return Files.size(Path.of(filename));
+		} catch (IOException e) {
+			return 0;
+		}
 	}
 
 	/**
@@ -94,6 +340,21 @@ public class NetworkManager {
 		save();
 	}
 
+	/**
+	 * Closes the current billing period of the network. The communications already paid are
+	 * archived in a file named after the file associated with this manager and the period.
+	 *
+	 * @return the number of communications archived
+	 * @throws MissingFileAssociationException if the current network does not have a file.
+	 * @throws IOException if there is some error while writing the archive.
+	 */
+	public int closeBillingPeriod() throws MissingFileAssociationException, IOException {
+		if ((_filename == null) || _filename.isBlank())
+			throw new MissingFileAssociationException();
+
+		return _network.closeBillingPeriod(_filename + ".period" + _network.getBillingPeriod(), _codec);
+	}
+
 	/**
 	 * Read text input file and create domain entities..
 	 *
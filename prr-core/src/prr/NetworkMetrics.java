@@ -0,0 +1,191 @@
+package prr;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import prr.communications.CommunicationResult;
+import prr.communications.MessageStore;
+import prr.metrics.Counter;
+import prr.metrics.Histogram;
+import prr.metrics.MetricsRegistry;
+
+/**
+ * The metrics recorded by a network. They are resolved from the registry once, so recording
+ * an operation never builds a metric name (rejections by reason are resolved on their first
+ * occurrence).
+ * <p>
+ * The sizes of the network are read by gauges, possibly from other threads (e.g. by a
+ * periodic dump). They are published as snapshots by the thread changing the network (see
+ * {@link #publish(Network)}), so the gauges never touch the network's collections.
+ */
+class NetworkMetrics {
+
+	/** The types of communications. */
+	private static final String[] TYPES = { "TEXT", "VOICE", "VIDEO" };
+
+	private final MetricsRegistry _registry;
+
+	private final Counter _textsSent;
+	private final Map<String, Counter> _started = new HashMap<>();
+	private final Map<String, Counter> _finished = new HashMap<>();
+	private final Counter _finishedStuck;
+	private final Counter _paid;
+	private final Counter _settlements;
+
+	private final Histogram _sendTextLatency;
+	private final Histogram _startInteractiveLatency;
+
+	private final Map<CommunicationResult, Counter> _sendTextRejections = new EnumMap<>(CommunicationResult.class);
+	private final Map<CommunicationResult, Counter> _startInteractiveRejections = new EnumMap<>(CommunicationResult.class);
+
+	/** The counters of the other operations, by operation. */
+	private final Map<String, Counter> _operations = new ConcurrentHashMap<>();
+
+	/** The rejection counters of the other operations, by operation and by reason. */
+	private final Map<String, Map<String, Counter>> _rejections = new ConcurrentHashMap<>();
+
+	private volatile long _clients;
+	private volatile long _terminals;
+	private volatile long _residentComms;
+	private volatile long _archivedComms;
+	private volatile long _distinctMessages;
+	private volatile long _messageReferences;
+	private volatile long _messagesHeapSaved;
+	private volatile long _messagesSnapshotSaved;
+
+	/**
+	 * Resolves the metrics and registers the gauges (replacing those of a previous network).
+	 *
+	 * @param registry where the metrics are recorded
+	 */
+	NetworkMetrics(MetricsRegistry registry) {
+		_registry = registry;
+
+		_textsSent = registry.counter("comms.sent.TEXT");
+		for (String type : TYPES) {
+			if (!type.equals("TEXT")) _started.put(type, registry.counter("comms.started." + type));
+			_finished.put(type, registry.counter("comms.finished." + type));
+		}
+		_finishedStuck = registry.counter("comms.finishedStuck");
+		_paid = registry.counter("comms.paid");
+		_settlements = registry.counter("settlements");
+
+		_sendTextLatency = registry.histogram("latency.sendTextCommunication");
+		_startInteractiveLatency = registry.histogram("latency.startInteractiveCommunication");
+
+		for (CommunicationResult result : CommunicationResult.values()) {
+			if (result == CommunicationResult.OK) continue;
+			_sendTextRejections.put(result, registry.counter("rejected.sendTextCommunication." + result));
+			_startInteractiveRejections.put(result, registry.counter("rejected.startInteractiveCommunication." + result));
+		}
+
+		registry.gauge("clients", () -> _clients);
+		registry.gauge("terminals", () -> _terminals);
+		registry.gauge("comms.resident", () -> _residentComms);
+		registry.gauge("comms.archived", () -> _archivedComms);
+		registry.gauge("messages.distinct", () -> _distinctMessages);
+		registry.gauge("messages.references", () -> _messageReferences);
+		registry.gauge("messages.heapSaved", () -> _messagesHeapSaved);
+		registry.gauge("messages.snapshotSaved", () -> _messagesSnapshotSaved);
+	}
+
+	/**
+	 * Publishes the current sizes of the network to the gauges. Must be called by the
+	 * thread changing the network.
+	 *
+	 * @param network the network
+	 */
+	void publish(Network network) {
+		MessageStore messages = network.getMessageStore();
+
+		_clients = network.getClients().size();
+		_terminals = network.getTerminals().size();
+		_residentComms = network.getCommunications().size();
+		_archivedComms = network.getArchivedCommunicationsCount();
+		_distinctMessages = messages.size();
+		_messageReferences = messages.references();
+		_messagesHeapSaved = messages.heapSaved();
+		_messagesSnapshotSaved = messages.snapshotSaved();
+	}
+
+	/**
+	 *
+	 * @param result the result of the attempt
+	 * @param elapsed the time taken (in nanoseconds)
+	 */
+	void onSendTextCommunication(CommunicationResult result, long elapsed) {
+		if (result == CommunicationResult.OK)
+			_textsSent.increment();
+		else
+			_sendTextRejections.get(result).increment();
+		_sendTextLatency.record(elapsed);
+	}
+
+	/**
+	 *
+	 * @param type the type of the communication
+	 * @param result the result of the attempt
+	 * @param elapsed the time taken (in nanoseconds)
+	 */
+	void onStartInteractiveCommunication(String type, CommunicationResult result, long elapsed) {
+		if (result == CommunicationResult.OK)
+			_started.get(type).increment();
+		else
+			_startInteractiveRejections.get(result).increment();
+		_startInteractiveLatency.record(elapsed);
+	}
+
+	/**
+	 *
+	 * @param type the type of the finished communication
+	 */
+	void onFinishCommunication(String type) {
+		_finished.get(type).increment();
+	}
+
+	/**
+	 *
+	 * @param count the number of communications finished for exceeding the maximum duration
+	 */
+	void onFinishStuckCommunications(int count) {
+		_finishedStuck.add(count);
+	}
+
+	/**
+	 *
+	 * @param count the number of communications paid
+	 */
+	void onPay(long count) {
+		_paid.add(count);
+	}
+
+	/**
+	 *
+	 * @param count the number of communications paid by the settlement
+	 */
+	void onSettle(long count) {
+		_settlements.increment();
+		_paid.add(count);
+	}
+
+	/**
+	 *
+	 * @param operation the name of the operation (e.g. addFriend)
+	 */
+	void onOperation(String operation) {
+		_operations.computeIfAbsent(operation, o -> _registry.counter("terminals." + o)).increment();
+	}
+
+	/**
+	 *
+	 * @param operation the name of the operation (e.g. registerClient)
+	 * @param reason the reason of the rejection
+	 */
+	void onRejected(String operation, String reason) {
+		_rejections.computeIfAbsent(operation, o -> new ConcurrentHashMap<>())
+				.computeIfAbsent(reason, r -> _registry.counter("rejected." + operation + "." + r))
+				.increment();
+	}
+}
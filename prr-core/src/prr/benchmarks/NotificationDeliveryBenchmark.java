@@ -0,0 +1,92 @@
+package prr.benchmarks;
+
+import java.net.InetAddress;
+import java.util.List;
+
+import prr.Network;
+import prr.notifications.BufferedNotificationDelivery;
+import prr.notifications.DigestNotificationDelivery;
+import prr.notifications.LocalNotificationServer;
+import prr.notifications.SocketNotificationDelivery;
+
+/**
+ * Measures the delivery of notifications to a {@link LocalNotificationServer} through a
+ * {@link SocketNotificationDelivery}, optionally wrapped in a {@link DigestNotificationDelivery}.
+ * <p>
+ * The delivery strategy is set on the network before any client is registered. Half of
+ * the terminals are turned off, every other terminal tries to text them, and then they
+ * are turned on again, so each client that missed them is notified.
+ * <p>
+ * Usage: {@code java -cp prr-core.jar prr.benchmarks.NotificationDeliveryBenchmark [clients [batch [delay [digest]]]]}
+ * (by default, 10000 clients, batches of 256, 50 ms of delay and no digest). The number of
+ * notifications and lines received and the delivery latency are printed.
+ */
+public class NotificationDeliveryBenchmark {
+
+    /** Number of terminals each terminal tries to text while they are off. */
+    private static final int ATTEMPTS_PER_TERMINAL = 4;
+
+    /** Time (in milliseconds) without new lines after which the server is considered done. */
+    private static final long QUIET_TIME = 1000;
+
+    public static void main(String[] args) throws Exception {
+        int clients = (args.length > 0) ? Integer.parseInt(args[0]) : 10_000;
+        int batch = (args.length > 1) ? Integer.parseInt(args[1]) : 256;
+        long delay = (args.length > 2) ? Long.parseLong(args[2]) : 50;
+        boolean digest = (args.length > 3) && Boolean.parseBoolean(args[3]);
+
+        try (LocalNotificationServer server = new LocalNotificationServer()) {
+            String host = InetAddress.getLoopbackAddress().getHostAddress();
+            SocketNotificationDelivery socket = new SocketNotificationDelivery(host, server.getPort(), batch, delay);
+            BufferedNotificationDelivery strategy = digest ? new DigestNotificationDelivery(socket, batch, delay) : socket;
+
+            Network network = new Network();
+            network.setNotificationDeliveryStrategy(strategy);
+
+            long start = System.nanoTime();
+            run(network, clients);
+            strategy.close();
+
+            int lines = 0;
+            while (server.await(lines + 1, QUIET_TIME))
+                lines = server.getReceived().size();
+            long elapsed = System.nanoTime() - start;
+
+            List<String> received = server.getReceived();
+            long notifications = digest
+                    ? received.stream().mapToLong(l -> Long.parseLong(l.split("\\|")[2])).sum()
+                    : received.size();
+
+            System.out.println("clients=" + clients + "|batch=" + batch + "|delay=" + delay + "|digest=" + digest);
+            System.out.println("notifications=" + notifications + "|lines=" + received.size()
+                    + "|batches=" + socket.getBatchCount() + "|failures=" + socket.getFailureCount()
+                    + "|elapsed=" + (elapsed - QUIET_TIME * 1_000_000) / 1_000_000 + "ms");
+            System.out.println("latency(ns): " + socket.getLatency());
+        }
+    }
+
+    /**
+     * Registers one terminal per client and makes half of them miss texts from the other half.
+     */
+    private static void run(Network network, int clients) throws Exception {
+        for (int c = 0; c < clients; c++) {
+            network.registerClient("c" + c, "Client " + c, c + 1);
+            network.registerTerminal("c" + c, terminalID(c), "BASIC");
+        }
+
+        for (int c = 1; c < clients; c += 2)
+            network.getTerminal(terminalID(c)).turnOff();
+
+        for (int c = 0; c < clients; c += 2) {
+            for (int a = 0; a < ATTEMPTS_PER_TERMINAL; a++)
+                network.trySendTextCommunication(terminalID(c), terminalID((c + 2 * a + 1) % clients), "ping");
+        }
+
+        for (int c = 1; c < clients; c += 2)
+            network.getTerminal(terminalID(c)).turnOn();
+    }
+
+    private static String terminalID(int n) {
+        return String.valueOf(100000 + n);
+    }
+}
@@ -0,0 +1,85 @@
+package prr.benchmarks;
+
+import java.io.File;
+
+import prr.Network;
+import prr.NetworkManager;
+import prr.terminals.Terminal;
+
+/**
+ * Measures the time taken to load a saved network with different numbers of threads
+ * decoding the snapshot blocks (see {@link NetworkManager#setLoadParallelism(int)}).
+ * <p>
+ * Usage: {@code java -cp prr-core.jar prr.benchmarks.SnapshotLoadBenchmark [communications [codec [runs]]]}
+ * (by default, 1000000 communications, "deflate" and 5 runs). The best time of each
+ * parallelism (1, 2, 4, ... up to the number of processors) is printed.
+ */
+public class SnapshotLoadBenchmark {
+
+    private static final int CLIENTS = 1000;
+    private static final int TERMINALS_PER_CLIENT = 4;
+    private static final int FRIENDS_PER_TERMINAL = 3;
+
+    public static void main(String[] args) throws Exception {
+        int comms = (args.length > 0) ? Integer.parseInt(args[0]) : 1_000_000;
+        String codec = (args.length > 1) ? args[1] : "deflate";
+        int runs = (args.length > 2) ? Integer.parseInt(args[2]) : 5;
+
+        File file = File.createTempFile("prr-snapshot", ".dat");
+        file.deleteOnExit();
+
+        NetworkManager manager = new NetworkManager();
+        manager.setCodec(codec);
+        populate(manager.getNetwork(), comms);
+        manager.saveAs(file.getPath());
+        manager.awaitPendingSave();
+
+        System.out.println("communications=" + comms + "|codec=" + codec + "|bytes=" + file.length());
+
+        int processors = Runtime.getRuntime().availableProcessors();
+        for (int parallelism = 1; ; parallelism = Math.min(2 * parallelism, processors)) {
+            NetworkManager loader = new NetworkManager();
+            loader.setLoadParallelism(parallelism);
+
+            long best = Long.MAX_VALUE;
+            for (int run = 0; run < runs; run++) {
+                long start = System.nanoTime();
+                loader.load(file.getPath());
+                best = Math.min(best, System.nanoTime() - start);
+            }
+            loader.setLoadParallelism(0);
+
+            System.out.println("parallelism=" + parallelism + "|best=" + best / 1_000_000 + "ms");
+            if (parallelism == processors) break;
+        }
+    }
+
+    /**
+     * Registers the clients and terminals (with some friends) and sends the text communications.
+     */
+    private static void populate(Network network, int comms) throws Exception {
+        int terminals = CLIENTS * TERMINALS_PER_CLIENT;
+
+        for (int c = 0; c < CLIENTS; c++) {
+            network.registerClient("c" + c, "Client " + c, c + 1);
+            for (int t = 0; t < TERMINALS_PER_CLIENT; t++)
+                network.registerTerminal("c" + c, terminalID(c * TERMINALS_PER_CLIENT + t), (t % 2 == 0) ? "BASIC" : "FANCY");
+        }
+
+        for (int t = 0; t < terminals; t++) {
+            Terminal term = network.getTerminal(terminalID(t));
+            for (int f = 1; f <= FRIENDS_PER_TERMINAL; f++)
+                term.addFriend(terminalID((t + f * 7) % terminals));
+        }
+
+        for (int i = 0; i < comms; i++) {
+            int origin = i % terminals;
+            int destin = (origin + 1 + i / terminals % (terminals - 1)) % terminals;
+            network.sendTextCommunication(terminalID(origin), terminalID(destin), "message " + i);
+        }
+    }
+
+    private static String terminalID(int n) {
+        return String.valueOf(100000 + n);
+    }
+}
@@ -0,0 +1,44 @@
+package prr.clients;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * Summary of the communications a client settled during a (closed) billing period.
+ */
+public class BillingPeriod implements Serializable {
+
+    @Serial private static final long serialVersionUID = 202212011200L;
+
+    private final int _period;
+    private final int _communications;
+    private final double _payments;
+
+    public BillingPeriod(int period, int communications, double payments) {
+        _period = period;
+        _communications = communications;
+        _payments = payments;
+    }
+
+    public int getPeriod() {
+        return _period;
+    }
+
+    public int getCommunications() {
+        return _communications;
+    }
+
+    public double getPayments() {
+        return _payments;
+    }
+
+    /**
+     * Format: period|communications|payments
+     *
+     * @return the string representation of this summary, in the format described above
+     */
+    @Override
+    public String toString() {
+        return getPeriod() + "|" + getCommunications() + "|" + Math.round(getPayments());
+    }
+}
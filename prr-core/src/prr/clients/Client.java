@@ -1,17 +1,19 @@
 package prr.clients;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.TreeMap;
 
 import prr.Network;
 import prr.communications.Communication;
 import prr.communications.CommunicationStatus;
-import prr.exceptions.CommunicationNotFoundException;
 import prr.exceptions.NotificationsAlreadyDisabledException;
 import prr.exceptions.NotificationsAlreadyEnabledException;
 import prr.exceptions.TerminalNotFoundException;
@@ -23,13 +25,35 @@ import prr.terminals.Terminal;
 public class Client implements Serializable {
 
     private final Network _network;
+    private final int _handle;
     private final String _uid;
     private String _name;
     private int _taxID;
-    private ClientLevel _level = new NormalLevel(this);
+    private ClientLevel _level = NormalLevel.INSTANCE;
 
-    public Client(Network network, String uid, String name, int taxID) {
+    /** Consecutive communications counted by the current level (reset on level changes). */
+    private int _streak;
+
+    /** Incremented whenever something shown by {@link #toString()} changes. */
+    private int _version;
+
+    /** The last rendering of this client (rebuilt when the version changes). */
+    private transient String _rendered;
+
+    /** The version of the last rendering. */
+    private transient int _renderedVersion;
+
+    /**
+     * 
+     * @return the modification counter of this client
+     */
+    public int getVersion() {
+        return _version;
+    }
+
+    public Client(Network network, int handle, String uid, String name, int taxID) {
         _network = network;
+        _handle = handle;
         _uid = uid;
         _name = name;
         _taxID = taxID;
@@ -37,6 +61,14 @@ public class Client implements Serializable {
         setTariffPlan("base");
     }
 
+    /**
+     * 
+     * @return the handle of this client (a small number, unique within the network)
+     */
+    public int getHandle() {
+        return _handle;
+    }
+
     public String getUID() {
         return _uid;
     }
@@ -53,8 +85,30 @@ public class Client implements Serializable {
         return _level.toString();
     }
 
-    void setLevel(ClientLevel level) {
+    /**
+     * 
+     * @param level the new level
+     * @param trigger the communication (performed or paid) that triggered the change
+     */
+    void setLevel(ClientLevel level, Communication trigger) {
+        ClientLevel from = _level;
+
         _level = level;
+        _streak = 0;
+        _version++;
+        _network.onClientLevelChange(new LevelChange(getUID(), from.toString(), level.toString(), trigger.getUID()));
+    }
+
+    /**
+     * 
+     * @return the streak, after incrementing it
+     */
+    int incrementStreak() {
+        return ++_streak;
+    }
+
+    void resetStreak() {
+        _streak = 0;
     }
     
     /*
@@ -93,7 +147,7 @@ public class Client implements Serializable {
         try {
             Terminal term = _network.getTerminal(id);
             if (term.getOwner() != this) return;
-            _terminals.putIfAbsent(id, term);
+            if (_terminals.putIfAbsent(id, term) == null) _version++;
         } catch (TerminalNotFoundException e) { /* just ignore */ }
     }
 
@@ -105,10 +159,13 @@ public class Client implements Serializable {
     private final Map<Integer, Communication> _ongoingComms = new TreeMap<>();
 
     /** A Map containing all in debt communications by id. */
-    private final Map<Integer, Communication> _inDebtComms = new TreeMap<>();
+    private final NavigableMap<Integer, Communication> _inDebtComms = new TreeMap<>();
+
+    /** The number of communications paid in the current billing period. */
+    private int _periodPaidComms;
 
-    /** A Map containing all paid communications by id. */
-    private final Map<Integer, Communication> _paidComms = new TreeMap<>();
+    /** The payments made in the current billing period. */
+    private double _periodPayments;
 
     /**
      * Called by {@link Communication#performPayment()} when this client pays a communication
@@ -122,8 +179,50 @@ public class Client implements Serializable {
         if (!comm.isPaid()) return;
 
         _inDebtComms.remove(commID); 
-        _paidComms.put(commID, comm);
-        _level.onPerformPayment();
+        _periodPaidComms++;
+        _periodPayments += comm.getCost();
+        _debts -= comm.getCost();
+        _payments += comm.getCost();
+        _version++;
+        _level.onPerformPayment(this, comm);
+    }
+
+    /**
+     * Called by {@link Network#settleClientDebts(String, int, int)} (and the terminal variant)
+     * to pay several communications at once: the totals are updated and the level is
+     * evaluated once for the whole settlement.
+     * 
+     * @param fromID the id of the first communication to pay
+     * @param toID the id of the last communication to pay
+     * @param terminalID the id of the terminal whose communications are paid (null for all)
+     * @return the communications paid, by id
+     */
+    public List<Communication> settleDebts(int fromID, int toID, String terminalID) {
+        List<Communication> settled = new ArrayList<>();
+        double amount = 0;
+
+        if (fromID > toID) return settled;
+
+        Iterator<Communication> it = _inDebtComms.subMap(fromID, true, toID, true).values().iterator();
+        while (it.hasNext()) {
+            Communication comm = it.next();
+            if (terminalID != null && !comm.isOrigin(terminalID)) continue;
+
+            comm.settle();
+            it.remove();
+            settled.add(comm);
+            amount += comm.getCost();
+        }
+
+        if (settled.isEmpty()) return settled;
+
+        _periodPaidComms += settled.size();
+        _periodPayments += amount;
+        _debts -= amount;
+        _payments += amount;
+        _version++;
+        _level.onPerformPayment(this, settled.get(settled.size() - 1));
+        return settled;
     }
 
     /**
@@ -133,15 +232,17 @@ public class Client implements Serializable {
      * @param commID the communication id
      */
     public void onTextCommunication(int commID) {
-        try {
-            Communication comm = _network.getCommunication(commID);
+        Communication comm = _network.findCommunication(commID);
+
+        if (comm == null) return;
+        if (!comm.isFromClient(getUID())) return;
+        if (comm.isPaid()) return;
 
-            if (!comm.isFromClient(getUID())) return;
-            if (comm.isPaid()) return;
+        if (_inDebtComms.putIfAbsent(commID, comm) != null) return;
 
-            _inDebtComms.putIfAbsent(commID, comm);
-            _level.onPerformCommunication(comm);
-        } catch (CommunicationNotFoundException e) { /* just ignore */ }
+        _debts += comm.getCost();
+        _version++;
+        _level.onPerformCommunication(this, comm);
     }
 
     /**
@@ -151,17 +252,16 @@ public class Client implements Serializable {
      * @param commID the communication id
      */
     public void onStartInteractiveCommunication(int commID) {
-        try {
-            Communication comm = _network.getCommunication(commID);
-            
-            if (!comm.isFromClient(getUID()) && !comm.isToClient(getUID())) return;
+        Communication comm = _network.findCommunication(commID);
 
-            _ongoingComms.putIfAbsent(commID, comm);
-        } catch (CommunicationNotFoundException e) { /* just ignore */ }
+        if (comm == null) return;
+        if (!comm.isFromClient(getUID()) && !comm.isToClient(getUID())) return;
+
+        _ongoingComms.putIfAbsent(commID, comm);
     }
 
     /**
-     * Called by {@link Communication#finish(int)} when finishing an interactive communication
+     * Called by {@link Communication#finish(int, long)} when finishing an interactive communication
      * and this terminal is either the origin or the destination.
      * 
      * @param commID the communication id
@@ -176,7 +276,9 @@ public class Client implements Serializable {
 
         if (comm.isFromClient(getUID())) {
             _inDebtComms.put(commID, comm);
-            _level.onPerformCommunication(comm);
+            _debts += comm.getCost();
+            _version++;
+            _level.onPerformCommunication(this, comm);
         }
     }
 
@@ -204,16 +306,45 @@ public class Client implements Serializable {
      * ---- Credits ----
      */
 
+    /** The total of the payments (kept up to date as communications are paid). */
+    private double _payments;
+
+    /** The total of the debts (kept up to date as communications are performed and paid). */
+    private double _debts;
+
+    /** The summaries of the closed billing periods (oldest first). */
+    private final List<BillingPeriod> _billingPeriods = new ArrayList<>();
+
     public double balance() {
         return (payments() - debts());
     }
 
     public double payments() {
-        return _paidComms.values().stream().mapToDouble(Communication::getCost).sum();
+        return _payments;
     }
 
     public double debts() {
-        return _inDebtComms.values().stream().mapToDouble(Communication::getCost).sum();
+        return _debts;
+    }
+
+    /**
+     * 
+     * @return the summaries of the closed billing periods (oldest first)
+     */
+    public List<BillingPeriod> getBillingPeriods() {
+        return Collections.unmodifiableList(_billingPeriods);
+    }
+
+    /**
+     * Called by {@link Network#closeBillingPeriod(String, byte)} when closing a billing period:
+     * the paid communications are summarized and forgotten (they are archived by the network).
+     * 
+     * @param period the billing period being closed
+     */
+    public void onCloseBillingPeriod(int period) {
+        _billingPeriods.add(new BillingPeriod(period, _periodPaidComms, _periodPayments));
+        _periodPaidComms = 0;
+        _periodPayments = 0;
     }
 
     /*
@@ -245,6 +376,7 @@ public class Client implements Serializable {
     public void enableNotifications() throws NotificationsAlreadyEnabledException {
         if (canReceiveNotifications()) throw new NotificationsAlreadyEnabledException();
         _notificationsEnabled = true;
+        _version++;
     }
 
     /**
@@ -255,6 +387,7 @@ public class Client implements Serializable {
     public void disableNotifications() throws NotificationsAlreadyDisabledException {
         if (!canReceiveNotifications()) throw new NotificationsAlreadyDisabledException();
         _notificationsEnabled = false;
+        _version++;
     }
 
     /**
@@ -263,7 +396,7 @@ public class Client implements Serializable {
      * @param notif the notification to send
      */
     public void sendNotification(Notification notif) {
-        _notificationDeliveryStrategy.send(notif);
+        _notificationDeliveryStrategy.send(this, notif);
     }
 
     /**
@@ -279,15 +412,16 @@ public class Client implements Serializable {
 
     /**
      * 
-     * @param strategy the new delivery strategy
+     * @param strategy the new delivery strategy (null to deliver in app)
      */
     public void setNotificationDeliveryStrategy(NotificationDeliveryStrategy strategy) {
-        _notificationDeliveryStrategy = strategy;
+        _notificationDeliveryStrategy.flush();
+        _notificationDeliveryStrategy = (strategy != null) ? strategy : new InAppNotificationDelivery();
     }
 
     private class InAppNotificationDelivery implements NotificationDeliveryStrategy {
         @Override
-        public void send(Notification notif) {
+        public void send(Client recipient, Notification notif) {
             _notifs.add(notif);
         }
     }
@@ -303,7 +437,7 @@ public class Client implements Serializable {
      * @return the tariff plan associated with this client
      */
     public TariffPlan getTariffPlan() {
-        return _network.getTariffPlan(_tariffPlan + "-" + getLevel().toLowerCase());
+        return _tariffPlan;
     }
 
     /**
@@ -325,15 +459,19 @@ public class Client implements Serializable {
      */
     @Override
     public String toString() {
-        String sep = "|";
-        return "CLIENT"
-                + sep + getUID()
-                + sep + getName()
-                + sep + getTaxID()
-                + sep + getLevel()
-                + sep + (canReceiveNotifications() ? "YES" : "NO")
-                + sep + getTerminals().size()
-                + sep + Math.round(payments())
-                + sep + Math.round(debts());
-	}
+        if (_rendered == null || _renderedVersion != _version) {
+            String sep = "|";
+            _rendered = "CLIENT"
+                    + sep + getUID()
+                    + sep + getName()
+                    + sep + getTaxID()
+                    + sep + getLevel()
+                    + sep + (canReceiveNotifications() ? "YES" : "NO")
+                    + sep + getTerminals().size()
+                    + sep + Math.round(payments())
+                    + sep + Math.round(debts());
+            _renderedVersion = _version;
+        }
+        return _rendered;
+    }
 }
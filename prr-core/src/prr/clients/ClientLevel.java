@@ -4,19 +4,20 @@ import java.io.Serializable;
 
 import prr.communications.Communication;
 
+/**
+ * Level of a client. Levels hold no data of their own (the client keeps its balance and
+ * its current streak), so each level has a single shared instance and every evaluation
+ * takes just a few comparisons.
+ */
 abstract class ClientLevel implements Serializable {
 
-    /** The client. */
-    protected final Client _client;
-
-    public ClientLevel(Client client) {
-        _client = client;
-    }
-
     /**
      * Called by {@link Client#onPerformPayment(int)} when paying a communication.
+     * 
+     * @param client the client
+     * @param comm the communication paid
      */
-    public void onPerformPayment() { 
+    public void onPerformPayment(Client client, Communication comm) { 
         /* empty (should be overriden) */
     }
 
@@ -24,9 +25,10 @@ abstract class ClientLevel implements Serializable {
      * Called by {@link Client#onTextCommunication(int)} and {@link Client#onEndInteractiveCommunication(int)}
      * when performing a communication (sending a text or ending an interactive communication)
      * 
+     * @param client the client
      * @param comm the communication performed
      */
-    public void onPerformCommunication(Communication comm) {
+    public void onPerformCommunication(Client client, Communication comm) {
         /* empty (should be overriden) */
     }
 
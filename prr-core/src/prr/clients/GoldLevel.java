@@ -1,29 +1,32 @@
 package prr.clients;
 
+import java.io.Serial;
+
 import prr.communications.Communication;
 
 class GoldLevel extends ClientLevel {
 
-	private int _videoCommsCounter;
+	/** The shared instance. */
+	static final GoldLevel INSTANCE = new GoldLevel();
 
-	public GoldLevel(Client client) {
-		super(client);
+	private GoldLevel() {
+		/* empty (use INSTANCE) */
 	}
 	
 	@Override
-	public void onPerformCommunication(Communication comm) {
-        if (_client.balance() < 0) {
-			_client.setLevel(new NormalLevel(_client));
+	public void onPerformCommunication(Client client, Communication comm) {
+        if (client.balance() < 0) {
+			client.setLevel(NormalLevel.INSTANCE, comm);
 			return;
 		}
 
 		if (!comm.getType().equals("VIDEO")) {
-			_videoCommsCounter = 0;
+			client.resetStreak();
 			return;
 		}
 
-		if (++_videoCommsCounter == 5) {
-			_client.setLevel(new PlatinumLevel(_client));
+		if (client.incrementStreak() == 5) {
+			client.setLevel(PlatinumLevel.INSTANCE, comm);
 		}
 	}
 
@@ -31,4 +34,9 @@ class GoldLevel extends ClientLevel {
 	public String toString() {
 		return "GOLD";
 	}
+
+	@Serial
+	private Object readResolve() {
+		return INSTANCE;
+	}
 }
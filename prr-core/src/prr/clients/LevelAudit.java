@@ -0,0 +1,237 @@
+package prr.clients;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Serial;
+import java.io.Serializable;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps the number of clients at each level and an append-only log of all the level
+ * changes (which can be replayed, e.g. to settle disputes about promotions).
+ * <p>
+ * Only the changes of the current billing period are kept in memory. When a period is
+ * closed, they are moved to a segment file (see {@link #archive(String)}), where the
+ * changes of each client are stored together: only the position of each client in each
+ * segment is kept in memory, so the changes of a client are read without scanning the
+ * segments.
+ */
+public class LevelAudit implements Serializable {
+
+    @Serial private static final long serialVersionUID = 202212011200L;
+
+    /** Marks the beginning of a segment file ("PRRL"), followed by the number of changes. */
+    private static final int MAGIC = 0x5052524C;
+
+    /** A segment file and the position of the changes of each client. */
+    private static class Segment implements Serializable {
+
+        @Serial private static final long serialVersionUID = 202212011200L;
+
+        private final String _filename;
+
+        /** The number of changes in the segment. */
+        private final int _count;
+
+        /** The clients with changes in the segment, sorted. */
+        private final String[] _clients;
+
+        /** The offset of the changes of each client. */
+        private final long[] _offsets;
+
+        /** The number of changes of each client. */
+        private final int[] _counts;
+
+        Segment(String filename, int count, String[] clients, long[] offsets, int[] counts) {
+            _filename = filename;
+            _count = count;
+            _clients = clients;
+            _offsets = offsets;
+            _counts = counts;
+        }
+    }
+
+    /** The number of clients at each level (read without locking). */
+    private final Map<String, LongAdder> _population = new ConcurrentHashMap<>();
+
+    /** The segments, one per closed billing period with level changes, oldest first. */
+    private final List<Segment> _segments = new ArrayList<>();
+
+    /** The level changes of the current billing period, oldest first. */
+    private final List<LevelChange> _log = new ArrayList<>();
+
+    /** The positions in the log of the changes of each client. */
+    private final Map<String, List<Integer>> _logByClient = new HashMap<>();
+
+    /**
+     * Called when a client is registered.
+     * 
+     * @param level the level of the new client
+     */
+    public void onRegisterClient(String level) {
+        _population.computeIfAbsent(level, l -> new LongAdder()).increment();
+    }
+
+    /**
+     * 
+     * @param change the level change to record
+     */
+    public synchronized void record(LevelChange change) {
+        _population.computeIfAbsent(change.getFrom(), l -> new LongAdder()).decrement();
+        _population.computeIfAbsent(change.getTo(), l -> new LongAdder()).increment();
+
+        _logByClient.computeIfAbsent(change.getClient(), c -> new ArrayList<>()).add(_log.size());
+        _log.add(change);
+    }
+
+    /**
+     * 
+     * @param level the level (in any case)
+     * @return the number of clients currently at the given level
+     */
+    public long count(String level) {
+        LongAdder count = _population.get(level.toUpperCase(Locale.ROOT));
+        return (count == null) ? 0 : count.sum();
+    }
+
+    /**
+     * 
+     * @return the number of clients currently at each level (by level name)
+     */
+    public Map<String, Long> getPopulation() {
+        Map<String, Long> population = new TreeMap<>();
+        _population.forEach((level, count) -> population.put(level, count.sum()));
+        return population;
+    }
+
+    /**
+     * Moves the changes of the current billing period to a new segment file (none is
+     * written if there are no changes).
+     * 
+     * @param filename the name of the segment file
+     * @throws IOException if there is some error while writing the segment (the changes
+     *         are then kept in memory)
+     */
+    public synchronized void archive(String filename) throws IOException {
+        if (_log.isEmpty()) return;
+
+        Map<String, List<Integer>> byClient = new TreeMap<>(_logByClient);
+        String[] clients = byClient.keySet().toArray(new String[0]);
+        long[] offsets = new long[clients.length];
+        int[] counts = new int[clients.length];
+
+        ByteArrayOutputStream records = new ByteArrayOutputStream();
+        DataOutputStream recordsOut = new DataOutputStream(records);
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(_log.size());
+            long offset = 2 * Integer.BYTES;
+
+            for (int i = 0; i < clients.length; i++) {
+                records.reset();
+                for (int position : byClient.get(clients[i]))
+                    writeRecord(recordsOut, position, _log.get(position));
+
+                offsets[i] = offset;
+                counts[i] = byClient.get(clients[i]).size();
+                records.writeTo(out);
+                offset += records.size();
+            }
+        }
+
+        _segments.add(new Segment(filename, _log.size(), clients, offsets, counts));
+        _log.clear();
+        _logByClient.clear();
+    }
+
+    /**
+     * 
+     * @return all the level changes, oldest first
+     * @throws IOException if the segments of the closed billing periods cannot be read
+     */
+    public synchronized List<LevelChange> getChanges() throws IOException {
+        List<LevelChange> changes = new ArrayList<>();
+
+        for (Segment segment : _segments) {
+            LevelChange[] period = new LevelChange[segment._count];
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(segment._filename)))) {
+                if (in.readInt() != MAGIC || in.readInt() != segment._count)
+                    throw new IOException(segment._filename + ": not a level change segment");
+
+                for (int i = 0; i < segment._clients.length; i++) {
+                    for (int k = 0; k < segment._counts[i]; k++) {
+                        int position = in.readInt();
+                        if (position < 0 || position >= period.length)
+                            throw new IOException(segment._filename + ": corrupted segment");
+                        period[position] = readRecord(in, segment._clients[i]);
+                    }
+                }
+            }
+            changes.addAll(Arrays.asList(period));
+        }
+
+        changes.addAll(_log);
+        return changes;
+    }
+
+    /**
+     * 
+     * @param client the id of the client
+     * @return the level changes of the given client, oldest first
+     * @throws IOException if the segments of the closed billing periods cannot be read
+     */
+    public synchronized List<LevelChange> getChanges(String client) throws IOException {
+        List<LevelChange> changes = new ArrayList<>();
+
+        for (Segment segment : _segments) {
+            int i = Arrays.binarySearch(segment._clients, client);
+            if (i < 0) continue;
+
+            try (RandomAccessFile file = new RandomAccessFile(segment._filename, "r")) {
+                file.seek(segment._offsets[i]);
+                DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(file.getChannel())));
+                for (int k = 0; k < segment._counts[i]; k++) {
+                    in.readInt(); // the position in the period
+                    changes.add(readRecord(in, client));
+                }
+            }
+        }
+
+        List<Integer> positions = _logByClient.get(client);
+        if (positions != null) positions.forEach(p -> changes.add(_log.get(p)));
+        return changes;
+    }
+
+    /**
+     * Format: position|from|to|idCommunication (the client is given by the index)
+     */
+    private static void writeRecord(DataOutputStream out, int position, LevelChange change) throws IOException {
+        out.writeInt(position);
+        out.writeUTF(change.getFrom());
+        out.writeUTF(change.getTo());
+        out.writeInt(change.getCommunicationID());
+    }
+
+    private static LevelChange readRecord(DataInputStream in, String client) throws IOException {
+        String from = in.readUTF();
+        String to = in.readUTF();
+        return new LevelChange(client, from, to, in.readInt());
+    }
+}
@@ -0,0 +1,61 @@
+package prr.clients;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * Event describing a change of level of a client.
+ */
+public class LevelChange implements Serializable {
+
+    @Serial private static final long serialVersionUID = 202212011200L;
+
+    private final String _client;
+    private final String _from;
+    private final String _to;
+    private final int _commID;
+
+    /**
+     * 
+     * @param client the id of the client
+     * @param from the previous level
+     * @param to the new level
+     * @param commID the id of the communication that triggered the change
+     */
+    public LevelChange(String client, String from, String to, int commID) {
+        _client = client;
+        _from = from;
+        _to = to;
+        _commID = commID;
+    }
+
+    public String getClient() {
+        return _client;
+    }
+
+    public String getFrom() {
+        return _from;
+    }
+
+    public String getTo() {
+        return _to;
+    }
+
+    /**
+     * 
+     * @return the id of the communication (performed or paid) that triggered the change
+     */
+    public int getCommunicationID() {
+        return _commID;
+    }
+
+    /**
+     * Format: idClient|from|to|idCommunication
+     *
+     * @return the string representation of this event, in the format described above
+     */
+    @Override
+    public String toString() {
+        return getClient() + "|" + getFrom() + "|" + getTo() + "|" + getCommunicationID();
+    }
+}
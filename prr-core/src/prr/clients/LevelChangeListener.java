@@ -0,0 +1,16 @@
+package prr.clients;
+
+import java.util.EventListener;
+
+/**
+ * Listener of the level changes of clients.
+ */
+@FunctionalInterface
+public interface LevelChangeListener extends EventListener {
+
+    /**
+     * 
+     * @param change the level change
+     */
+    void onLevelChange(LevelChange change);
+}
@@ -1,22 +1,27 @@
 package prr.clients;
 
+import java.io.Serial;
+
 import prr.communications.Communication;
 
 class NormalLevel extends ClientLevel {
 
-	public NormalLevel(Client client) {
-		super(client);
+	/** The shared instance. */
+	static final NormalLevel INSTANCE = new NormalLevel();
+
+	private NormalLevel() {
+		/* empty (use INSTANCE) */
 	}
 
 	@Override
-	public void onPerformPayment() {
-		if (_client.balance() > 500) {
-			_client.setLevel(new GoldLevel(_client));
+	public void onPerformPayment(Client client, Communication comm) {
+		if (client.balance() > 500) {
+			client.setLevel(GoldLevel.INSTANCE, comm);
 		}
 	}
 
 	@Override
-	public void onPerformCommunication(Communication comm) {
+	public void onPerformCommunication(Client client, Communication comm) {
 		/* do nothing */
 	}
 
@@ -24,4 +29,9 @@ class NormalLevel extends ClientLevel {
 	public String toString() {
 		return "NORMAL";
 	}
+
+	@Serial
+	private Object readResolve() {
+		return INSTANCE;
+	}
 }
@@ -1,29 +1,32 @@
 package prr.clients;
 
+import java.io.Serial;
+
 import prr.communications.Communication;
 
 class PlatinumLevel extends ClientLevel {
 
-	private int _textCommsCounter;
+	/** The shared instance. */
+	static final PlatinumLevel INSTANCE = new PlatinumLevel();
 
-	public PlatinumLevel(Client client) {
-		super(client);
+	private PlatinumLevel() {
+		/* empty (use INSTANCE) */
 	}
 
 	@Override
-	public void onPerformCommunication(Communication comm) {
-        if (_client.balance() < 0) {
-			_client.setLevel(new NormalLevel(_client));
+	public void onPerformCommunication(Client client, Communication comm) {
+        if (client.balance() < 0) {
+			client.setLevel(NormalLevel.INSTANCE, comm);
 			return;
 		}
 
 		if (comm.isInteractive()) {
-			_textCommsCounter = 0;
+			client.resetStreak();
 			return;
 		}
 
-		if (++_textCommsCounter == 2) {
-			_client.setLevel(new GoldLevel(_client));
+		if (client.incrementStreak() == 2) {
+			client.setLevel(GoldLevel.INSTANCE, comm);
 		}
 	}
 
@@ -31,4 +34,9 @@ class PlatinumLevel extends ClientLevel {
 	public String toString() {
 		return "PLATINUM";
 	}
+
+	@Serial
+	private Object readResolve() {
+		return INSTANCE;
+	}
 }
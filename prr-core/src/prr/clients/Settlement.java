@@ -0,0 +1,77 @@
+package prr.clients;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * Journal record of a settlement (several debts of a client paid at once).
+ */
+public class Settlement implements Serializable {
+
+    @Serial private static final long serialVersionUID = 202212011200L;
+
+    private final String _client;
+    private final String _terminal;
+    private final int _fromID;
+    private final int _toID;
+    private final int _communications;
+    private final double _amount;
+
+    /**
+     * 
+     * @param client the id of the client
+     * @param terminal the id of the terminal (null if the debts of all the terminals were settled)
+     * @param fromID the id of the first communication of the settled range
+     * @param toID the id of the last communication of the settled range
+     * @param communications the number of communications paid
+     * @param amount the amount paid
+     */
+    public Settlement(String client, String terminal, int fromID, int toID, int communications, double amount) {
+        _client = client;
+        _terminal = terminal;
+        _fromID = fromID;
+        _toID = toID;
+        _communications = communications;
+        _amount = amount;
+    }
+
+    public String getClient() {
+        return _client;
+    }
+
+    public String getTerminal() {
+        return _terminal;
+    }
+
+    public int getFromID() {
+        return _fromID;
+    }
+
+    public int getToID() {
+        return _toID;
+    }
+
+    public int getCommunications() {
+        return _communications;
+    }
+
+    public double getAmount() {
+        return _amount;
+    }
+
+    /**
+     * Format: client|terminal|fromID|toID|communications|amount (terminal is empty for all)
+     *
+     * @return the string representation of this settlement, in the format described above
+     */
+    @Override
+    public String toString() {
+        String sep = "|";
+        return getClient()
+                + sep + (getTerminal() != null ? getTerminal() : "")
+                + sep + getFromID()
+                + sep + getToID()
+                + sep + getCommunications()
+                + sep + Math.round(getAmount());
+    }
+}
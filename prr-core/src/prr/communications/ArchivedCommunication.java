@@ -0,0 +1,39 @@
+package prr.communications;
+
+import java.io.Serial;
+
+import prr.tariffs.TariffPlan;
+import prr.terminals.Terminal;
+
+/**
+ * A settled communication restored from an archive of a closed billing period. It is
+ * always finished and paid.
+ */
+public class ArchivedCommunication extends Communication {
+
+    @Serial private static final long serialVersionUID = 202212011200L;
+
+    /** The type of the original communication. */
+    private final String _type;
+
+    public ArchivedCommunication(int id, String type, Terminal origin, Terminal destin,
+            long startTime, long endTime, int units, double cost) {
+        super(id, origin, destin, startTime, endTime, units, cost);
+        _type = type;
+    }
+
+    @Override
+    public String getType() {
+        return _type;
+    }
+
+    @Override
+    public boolean isInteractive() {
+        return !_type.equals("TEXT");
+    }
+
+    @Override
+    protected double accept(TariffPlan plan) {
+        throw new IllegalStateException(); // archived communications are never finished again
+    }
+}
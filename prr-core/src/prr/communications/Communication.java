@@ -12,15 +12,51 @@ public abstract class Communication implements Serializable, Comparable<Communic
     private final Terminal _origin;
     private final Terminal _destin;
 
+    /** When this communication started (in milliseconds since the epoch). */
+    private final long _startTime;
+
+    /** When this communication ended (in milliseconds since the epoch), if finished. */
+    private long _endTime;
+
     private CommunicationStatus _status = CommunicationStatus.ONGOING;
     private int _units;
     private double _cost;
     private boolean _paid;
 
-    public Communication(int id, Terminal origin, Terminal destin) {
+    /** Incremented whenever something shown by {@link #toString()} changes. */
+    private int _version;
+
+    /** The last rendering of this communication (rebuilt when the version changes). */
+    private transient String _rendered;
+
+    /** The version of the last rendering. */
+    private transient int _renderedVersion;
+
+    /**
+     * 
+     * @param startTime when the communication started (in milliseconds since the epoch)
+     */
+    public Communication(int id, Terminal origin, Terminal destin, long startTime) {
         _uid = id;
         _origin = origin;
         _destin = destin;
+        _startTime = startTime;
+    }
+
+    /**
+     * Restores a finished and paid communication (e.g. from an archive).
+     */
+    protected Communication(int id, Terminal origin, Terminal destin,
+            long startTime, long endTime, int units, double cost) {
+        _uid = id;
+        _origin = origin;
+        _destin = destin;
+        _startTime = startTime;
+        _endTime = endTime;
+        _status = CommunicationStatus.FINISHED;
+        _units = units;
+        _cost = cost;
+        _paid = true;
     }
 
     public int getUID() {
@@ -39,6 +75,22 @@ public abstract class Communication implements Serializable, Comparable<Communic
         return _status;
     }
 
+    /**
+     * 
+     * @return when this communication started (in milliseconds since the epoch)
+     */
+    public long getStartTime() {
+        return _startTime;
+    }
+
+    /**
+     * 
+     * @return when this communication ended (in milliseconds since the epoch), or -1 if ongoing
+     */
+    public long getEndTime() {
+        return (_status == CommunicationStatus.FINISHED) ? _endTime : -1;
+    }
+
     public int getUnits() {
         return _units;
     }
@@ -47,6 +99,14 @@ public abstract class Communication implements Serializable, Comparable<Communic
         return _cost;
     }
 
+    /**
+     * 
+     * @return the modification counter of this communication
+     */
+    public int getVersion() {
+        return _version;
+    }
+
     public boolean isPaid() {
         return _paid;
     }
@@ -56,9 +116,22 @@ public abstract class Communication implements Serializable, Comparable<Communic
         if (isPaid()) throw new CommunicationAlreadyPaidException();
         
         _paid = true;
+        getOrigin().onPerformPayment(getUID());
         getOrigin().getOwner().onPerformPayment(getUID());
     }
 
+    /**
+     * Marks this communication as paid, as part of a settlement of several communications
+     * (the settlement updates the origin terminal and client once for all of them).
+     * 
+     * @throws IllegalStateException if the communication is not finished or is paid already
+     */
+    public void settle() throws IllegalStateException {
+        if (getStatus() != CommunicationStatus.FINISHED || isPaid()) throw new IllegalStateException();
+        _paid = true;
+        _version++;
+    }
+
     public boolean isFriendly() {
         return getOrigin().isFriend(getDestination().getUID());
     }
@@ -80,19 +153,33 @@ public abstract class Communication implements Serializable, Comparable<Communic
     }
 
     /**
-     * Ends the communication by setting it as FINISHED and calculating its units and cost.
+     * Ends the communication now (according to the clock of the origin's network).
      * 
      * @param units the units (chars count if text, duration if interactive)
      * @return the cost of this communication
      * @throws IllegalStateException if the communication is already finished
      */
     public double finish(int units) throws IllegalStateException {
+        return finish(units, getOrigin().currentTimeMillis());
+    }
+
+    /**
+     * Ends the communication by setting it as FINISHED and calculating its units and cost.
+     * 
+     * @param units the units (chars count if text, duration if interactive)
+     * @param endTime when the communication ended (in milliseconds since the epoch)
+     * @return the cost of this communication
+     * @throws IllegalStateException if the communication is already finished
+     */
+    public double finish(int units, long endTime) throws IllegalStateException {
         if (_status == CommunicationStatus.FINISHED)
             throw new IllegalStateException(); // CommunicationAlreadyFinishedException ?
 
         _status = CommunicationStatus.FINISHED;
+        _endTime = endTime;
         _units = units;
         _cost = accept(getOrigin().getOwner().getTariffPlan());
+        _version++;
         return _cost;
     }
 
@@ -125,14 +212,18 @@ public abstract class Communication implements Serializable, Comparable<Communic
      */
     @Override
     public String toString() {
-        String sep = "|";
-        return getType()
-            + sep + getUID()
-            + sep + getOrigin().getUID()
-            + sep + getDestination().getUID()
-            + sep + getUnits()
-            + sep + Math.round(getCost())
-            + sep + getStatus();
+        if (_rendered == null || _renderedVersion != _version) {
+            String sep = "|";
+            _rendered = getType()
+                + sep + getUID()
+                + sep + getOrigin().getUID()
+                + sep + getDestination().getUID()
+                + sep + getUnits()
+                + sep + Math.round(getCost())
+                + sep + getStatus();
+            _renderedVersion = _version;
+        }
+        return _rendered;
     }
 
     @Override
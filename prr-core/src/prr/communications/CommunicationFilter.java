@@ -0,0 +1,153 @@
+package prr.communications;
+
+import java.util.BitSet;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import prr.exceptions.InvalidFilterException;
+
+/**
+ * Filter over communications, built from an expression such as
+ * {@code type=VIDEO status=ONGOING cost>100}.
+ * <p>
+ * An expression is a list of conditions (separated by spaces or commas), all of which must
+ * hold. Each condition is a field, an operator ({@code = != < <= > >=}) and a value. The
+ * fields are: type, status, paid (YES or NO), origin and destination (terminal ids), from
+ * and to (client ids), units and cost. An empty expression accepts every communication.
+ */
+public class CommunicationFilter implements Predicate<Communication> {
+
+    /** field, operator and value (without spaces). */
+    private static final Pattern CONDITION = Pattern.compile("(\\w+)(!=|<=|>=|=|<|>)(\\S+)");
+
+    /** Accepts every communication. */
+    public static final CommunicationFilter ALL = new CommunicationFilter(c -> true, null);
+
+    private final Predicate<Communication> _predicate;
+
+    /** Finds the candidates in the bitmap indexes (null if no condition is indexed). */
+    private final Function<CommunicationIndex, BitSet> _candidates;
+
+    private CommunicationFilter(Predicate<Communication> predicate, Function<CommunicationIndex, BitSet> candidates) {
+        _predicate = predicate;
+        _candidates = candidates;
+    }
+
+    @Override
+    public boolean test(Communication comm) {
+        return _predicate.test(comm);
+    }
+
+    /**
+     * The communications outside the candidates do not match the filter. The candidates
+     * still have to be tested, since not all conditions are indexed.
+     * 
+     * @param index the index of the communications
+     * @return the ids of the candidate communications (null if all are candidates)
+     */
+    public BitSet candidates(CommunicationIndex index) {
+        return (_candidates == null) ? null : _candidates.apply(index);
+    }
+
+    /**
+     * 
+     * @param expression the filter expression
+     * @return the corresponding filter
+     * @throws InvalidFilterException if some condition of the expression is not valid
+     */
+    public static CommunicationFilter parse(String expression) throws InvalidFilterException {
+        Predicate<Communication> predicate = null;
+        Function<CommunicationIndex, BitSet> candidates = null;
+
+        for (String condition : expression.trim().split("[\\s,]+")) {
+            if (condition.isEmpty()) continue;
+
+            Matcher m = CONDITION.matcher(condition);
+            if (!m.matches()) throw new InvalidFilterException(condition);
+
+            Predicate<Communication> p = parseCondition(condition, m);
+            predicate = (predicate == null) ? p : predicate.and(p);
+
+            Function<CommunicationIndex, BitSet> c = indexedCondition(m);
+            if (c != null) candidates = (candidates == null) ? c : and(candidates, c);
+        }
+        return (predicate == null) ? ALL : new CommunicationFilter(predicate, candidates);
+    }
+
+    private static Function<CommunicationIndex, BitSet> and(Function<CommunicationIndex, BitSet> left,
+            Function<CommunicationIndex, BitSet> right) {
+        return index -> {
+            BitSet ids = left.apply(index);
+            ids.and(right.apply(index));
+            return ids;
+        };
+    }
+
+    /**
+     * 
+     * @param m the matched condition
+     * @return the lookup of the condition in the bitmap indexes (null if not indexed)
+     */
+    private static Function<CommunicationIndex, BitSet> indexedCondition(Matcher m) {
+        if (!m.group(2).equals("=")) return null;
+
+        String value = m.group(3).toUpperCase();
+
+        return switch (m.group(1).toLowerCase()) {
+            case "type" -> index -> index.ofType(value);
+            case "status" -> index -> switch (value) {
+                case "ONGOING" -> index.withStatus(CommunicationStatus.ONGOING);
+                case "FINISHED" -> index.withStatus(CommunicationStatus.FINISHED);
+                default -> new BitSet();
+            };
+            case "paid" -> index -> switch (value) {
+                case "YES" -> index.paid(true);
+                case "NO" -> index.paid(false);
+                default -> new BitSet();
+            };
+            default -> null;
+        };
+    }
+
+    private static Predicate<Communication> parseCondition(String condition, Matcher m)
+            throws InvalidFilterException {
+        String op = m.group(2);
+        String value = m.group(3);
+
+        return switch (m.group(1).toLowerCase()) {
+            case "type" -> compare(condition, op, Communication::getType, value.toUpperCase());
+            case "status" -> compare(condition, op, c -> c.getStatus().toString(), value.toUpperCase());
+            case "paid" -> compare(condition, op, c -> (c.isPaid() ? "YES" : "NO"), value.toUpperCase());
+            case "origin" -> compare(condition, op, c -> c.getOrigin().getUID(), value);
+            case "destination" -> compare(condition, op, c -> c.getDestination().getUID(), value);
+            case "from" -> compare(condition, op, c -> c.getOrigin().getOwner().getUID(), value);
+            case "to" -> compare(condition, op, c -> c.getDestination().getOwner().getUID(), value);
+            case "units" -> compare(condition, op, c -> (double) c.getUnits(), number(condition, value));
+            case "cost" -> compare(condition, op, Communication::getCost, number(condition, value));
+            default -> throw new InvalidFilterException(condition);
+        };
+    }
+
+    private static double number(String condition, String value) throws InvalidFilterException {
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new InvalidFilterException(condition);
+        }
+    }
+
+    private static <T extends Comparable<T>> Predicate<Communication> compare(String condition, String op,
+            Function<Communication, T> field, T value) throws InvalidFilterException {
+        return switch (op) {
+            case "=" -> c -> field.apply(c).compareTo(value) == 0;
+            case "!=" -> c -> field.apply(c).compareTo(value) != 0;
+            case "<" -> c -> field.apply(c).compareTo(value) < 0;
+            case "<=" -> c -> field.apply(c).compareTo(value) <= 0;
+            case ">" -> c -> field.apply(c).compareTo(value) > 0;
+            case ">=" -> c -> field.apply(c).compareTo(value) >= 0;
+            default -> throw new InvalidFilterException(condition);
+        };
+    }
+}
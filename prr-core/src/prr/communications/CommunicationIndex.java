@@ -0,0 +1,279 @@
+package prr.communications;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.IntStream;
+
+/**
+ * Time index over the communications of a network.
+ * <p>
+ * Communications are indexed by id (ids are assigned sequentially, starting at 1) and
+ * their start times are kept in a sorted array, so time windows are found by binary
+ * search. Ongoing interactive communications are also kept by id (i.e. by start time).
+ * <p>
+ * The clock may go backwards, so a communication may start before an earlier one: such
+ * (late) communications are few, and are also kept apart with their start times, which
+ * the time queries check one by one.
+ * <p>
+ * Since ids are dense, the communications of each type, the finished ones and the paid ones
+ * are also kept as bitmaps over ids: the queries return copies, which may be combined with
+ * {@link BitSet#and(BitSet)}, {@link BitSet#or(BitSet)} and {@link BitSet#andNot(BitSet)}.
+ */
+public class CommunicationIndex implements Serializable {
+
+    @Serial private static final long serialVersionUID = 202212011200L;
+
+    /** The indexed types (the type of each communication is stored as its position here). */
+    private static final List<String> TYPES = List.of("TEXT", "VOICE", "VIDEO");
+
+    /**
+     * Latest start time up to each communication (position id - 1), never decreasing: the
+     * start time of the communication itself, unless it is late.
+     */
+    private long[] _startTimes = new long[16];
+
+    /** The positions of the late communications (started before an earlier one), in order. */
+    private int[] _late = new int[4];
+
+    /** The start times of the late communications. */
+    private long[] _lateStartTimes = new long[4];
+
+    /** Number of late communications. */
+    private int _lateSize;
+
+    /** Type of each communication (position id - 1). */
+    private byte[] _types = new byte[16];
+
+    /** Number of indexed communications. */
+    private int _size;
+
+    /** The (possibly) ongoing interactive communications by id. */
+    private final Map<Integer, Communication> _ongoing = new TreeMap<>();
+
+    /** The ids of the communications of each type (by type position). */
+    private final BitSet[] _byType = { new BitSet(), new BitSet(), new BitSet() };
+
+    /** The ids of the finished communications. */
+    private final BitSet _finished = new BitSet();
+
+    /** The ids of the paid communications. */
+    private final BitSet _paid = new BitSet();
+
+    /**
+     * Indexes a new communication (communications must be added by id order).
+     *
+     * @param comm the communication to index
+     * @throws IllegalArgumentException if the communication is not the next one
+     */
+    public void add(Communication comm) throws IllegalArgumentException {
+        if (comm.getUID() != _size + 1) throw new IllegalArgumentException();
+
+        if (_size == _startTimes.length) {
+            _startTimes = Arrays.copyOf(_startTimes, 2 * _size);
+            _types = Arrays.copyOf(_types, 2 * _size);
+        }
+
+        long last = (_size > 0) ? _startTimes[_size - 1] : Long.MIN_VALUE;
+        if (comm.getStartTime() < last) addLate(_size, comm.getStartTime());
+        _startTimes[_size] = Math.max(last, comm.getStartTime());
+        _types[_size] = (byte) TYPES.indexOf(comm.getType());
+        _size++;
+
+        _byType[TYPES.indexOf(comm.getType())].set(comm.getUID());
+        if (comm.isPaid()) _paid.set(comm.getUID());
+
+        if (comm.getStatus() == CommunicationStatus.ONGOING)
+            _ongoing.put(comm.getUID(), comm);
+        else
+            _finished.set(comm.getUID());
+    }
+
+    /**
+     * 
+     * @param comm the (indexed) communication that has just finished
+     */
+    public void onFinish(Communication comm) {
+        _finished.set(comm.getUID());
+        _ongoing.remove(comm.getUID());
+    }
+
+    /**
+     * 
+     * @param comm the (indexed) communication that has just been paid
+     */
+    public void onPerformPayment(Communication comm) {
+        _paid.set(comm.getUID());
+    }
+
+    /**
+     *
+     * @return the ids of all the indexed communications
+     */
+    public BitSet all() {
+        BitSet ids = new BitSet(_size + 1);
+        ids.set(1, _size + 1);
+        return ids;
+    }
+
+    /**
+     *
+     * @param type the type of the communications (TEXT, VOICE or VIDEO)
+     * @return the ids of the communications of the given type
+     */
+    public BitSet ofType(String type) {
+        int code = TYPES.indexOf(type);
+        return (code < 0) ? new BitSet() : (BitSet) _byType[code].clone();
+    }
+
+    /**
+     *
+     * @param status the status of the communications
+     * @return the ids of the communications with the given status
+     */
+    public BitSet withStatus(CommunicationStatus status) {
+        if (status == CommunicationStatus.FINISHED) return (BitSet) _finished.clone();
+
+        BitSet ids = all();
+        ids.andNot(_finished);
+        return ids;
+    }
+
+    /**
+     *
+     * @param paid whether to look for the paid or the unpaid communications
+     * @return the ids of the paid (or unpaid) communications
+     */
+    public BitSet paid(boolean paid) {
+        if (paid) return (BitSet) _paid.clone();
+
+        BitSet ids = all();
+        ids.andNot(_paid);
+        return ids;
+    }
+
+    /**
+     *
+     * @param from the start of the window (inclusive, in milliseconds since the epoch)
+     * @param to the end of the window (exclusive, in milliseconds since the epoch)
+     * @return the ids of the communications started in the given window, in order
+     */
+    public IntStream between(long from, long to) {
+        int first = firstStartedAt(from);
+        int last = Math.max(first, firstStartedAt(to));
+        IntStream positions = IntStream.range(first, last);
+
+        if (_lateSize > 0) {
+            // late communications in the range may have started before the window, and after it within it
+            positions = IntStream.concat(positions.filter(p -> startTimeOf(p) >= from),
+                    IntStream.range(firstLateAt(last), _lateSize)
+                            .filter(i -> _lateStartTimes[i] >= from && _lateStartTimes[i] < to)
+                            .map(i -> _late[i]));
+        }
+        return positions.map(p -> p + 1);
+    }
+
+    /**
+     *
+     * @param type the type of the communications (TEXT, VOICE or VIDEO)
+     * @param from the start of the window (inclusive, in milliseconds since the epoch)
+     * @param to the end of the window (exclusive, in milliseconds since the epoch)
+     * @return the ids of the communications of the given type started in the given window, in order
+     */
+    public IntStream between(String type, long from, long to) {
+        byte code = (byte) TYPES.indexOf(type);
+        return between(from, to).filter(id -> _types[id - 1] == code);
+    }
+
+    /**
+     *
+     * @return the ids of the ongoing communications, in order (by id)
+     */
+    public IntStream ongoing() {
+        return _ongoing.values().stream()
+                .filter(c -> c.getStatus() == CommunicationStatus.ONGOING)
+                .mapToInt(Communication::getUID);
+    }
+
+    /**
+     *
+     * @param duration the minimum duration (in milliseconds)
+     * @param now the current time (in milliseconds since the epoch)
+     * @return the ids of the communications that have been ongoing for at least the given duration, in order
+     */
+    public IntStream ongoingLongerThan(long duration, long now) {
+        IntStream.Builder ids = IntStream.builder();
+        Iterator<Communication> it = _ongoing.values().iterator();
+
+        while (it.hasNext()) {
+            Communication comm = it.next();
+
+            if (comm.getStatus() != CommunicationStatus.ONGOING) {
+                it.remove(); // finished since it was indexed
+            } else if (now - comm.getStartTime() >= duration) {
+                ids.add(comm.getUID());
+            } else {
+                // all the following started later, except the late ones
+                for (int i = firstLateAt(comm.getUID()); i < _lateSize; i++) {
+                    Communication late = _ongoing.get(_late[i] + 1);
+                    if (late != null && late.getStatus() == CommunicationStatus.ONGOING
+                            && now - _lateStartTimes[i] >= duration)
+                        ids.add(late.getUID());
+                }
+                break;
+            }
+        }
+        return ids.build();
+    }
+
+    private void addLate(int position, long startTime) {
+        if (_lateSize == _late.length) {
+            _late = Arrays.copyOf(_late, 2 * _lateSize);
+            _lateStartTimes = Arrays.copyOf(_lateStartTimes, 2 * _lateSize);
+        }
+        _late[_lateSize] = position;
+        _lateStartTimes[_lateSize] = startTime;
+        _lateSize++;
+    }
+
+    /**
+     *
+     * @param position a position
+     * @return the index (in the late communications) of the first one at or after the given position
+     */
+    private int firstLateAt(int position) {
+        int i = Arrays.binarySearch(_late, 0, _lateSize, position);
+        return (i >= 0) ? i : -i - 1;
+    }
+
+    /**
+     *
+     * @param position the position of a communication
+     * @return the start time of the communication
+     */
+    private long startTimeOf(int position) {
+        int i = Arrays.binarySearch(_late, 0, _lateSize, position);
+        return (i >= 0) ? _lateStartTimes[i] : _startTimes[position];
+    }
+
+    /**
+     *
+     * @param time a time (in milliseconds since the epoch)
+     * @return the position of the first communication (late ones aside) started at or after the given time
+     */
+    private int firstStartedAt(long time) {
+        int low = 0, high = _size;
+
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (_startTimes[mid] < time) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+}
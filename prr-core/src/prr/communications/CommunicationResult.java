@@ -0,0 +1,18 @@
+package prr.communications;
+
+/**
+ * Result of an attempt to send or start a communication (see the non-throwing variants
+ * of the network operations).
+ */
+public enum CommunicationResult {
+    OK,
+    TERMINAL_NOT_FOUND,
+    INVALID_TYPE,
+    UNSUPPORTED_AT_ORIGIN,
+    UNSUPPORTED_AT_DESTINATION,
+    ORIGIN_OFF,
+    ORIGIN_BUSY,
+    DESTINATION_OFF,
+    DESTINATION_BUSY,
+    DESTINATION_SILENT
+}
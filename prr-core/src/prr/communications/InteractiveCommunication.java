@@ -6,8 +6,8 @@ public abstract class InteractiveCommunication extends Communication {
 
     protected int _duration;
 
-    public InteractiveCommunication(int id, Terminal sender, Terminal receiver) {
-        super(id, sender, receiver);
+    public InteractiveCommunication(int id, Terminal sender, Terminal receiver, long startTime) {
+        super(id, sender, receiver, startTime);
     }
 
     @Override
@@ -16,8 +16,8 @@ public abstract class InteractiveCommunication extends Communication {
     }
 
     @Override
-    public double finish(int units) throws IllegalStateException {
-        double cost = super.finish(units);
+    public double finish(int units, long endTime) throws IllegalStateException {
+        double cost = super.finish(units, endTime);
         getOrigin().onEndInteractiveCommunication();
         getDestination().onEndInteractiveCommunication();
         getOrigin().getOwner().onEndInteractiveCommunication(getUID());
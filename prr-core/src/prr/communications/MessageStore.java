@@ -0,0 +1,174 @@
+package prr.communications;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Content-addressed store of the messages of the text communications.
+ * <p>
+ * Each distinct message is kept once: {@link #acquire(String)} returns the stored instance,
+ * which the communications keep instead of their own copies (so equal messages also share
+ * a single entry in the saved snapshots). Each message counts its references, and is
+ * dropped when the last one is released (e.g. when its communications are archived).
+ * <p>
+ * The index of the messages is not serialized: only each message and its count are, and
+ * the index is rebuilt when loading (the messages are the instances of the communications,
+ * since they are written once per snapshot).
+ */
+public class MessageStore implements Serializable {
+
+    @Serial private static final long serialVersionUID = 202212011200L;
+
+    /** Estimated heap size of a string besides its characters (header, fields and array header). */
+    private static final int STRING_OVERHEAD = 40;
+
+    /** Estimated size of a string in a snapshot besides its characters (tag and length). */
+    private static final int SERIALIZED_STRING_OVERHEAD = 3;
+
+    /** Estimated size of a reference to a string already written in a snapshot. */
+    private static final int SERIALIZED_BACK_REFERENCE = 5;
+
+    /** Estimated heap size of the index of a message (hash map node, table slot and entry). */
+    private static final int ENTRY_OVERHEAD = 64;
+
+    /** Estimated size of a message of the index in a snapshot, besides the message (reference and count). */
+    private static final int SERIALIZED_ENTRY_OVERHEAD = SERIALIZED_BACK_REFERENCE + Integer.BYTES;
+
+    /** A stored message and its number of references. */
+    private static class Entry {
+
+        private final String _message;
+        private int _references;
+
+        Entry(String message) {
+            _message = message;
+        }
+    }
+
+    /** The stored messages by content (rebuilt when loading). */
+    private transient Map<String, Entry> _entries = new HashMap<>();
+
+    /** Number of references to the stored messages. */
+    private long _references;
+
+    /** Number of characters of the stored messages. */
+    private long _storedChars;
+
+    /** Number of characters referenced (each message counted once per reference). */
+    private long _referencedChars;
+
+    /**
+     *
+     * @param message a message
+     * @return the stored instance of the message (to be kept instead of the given one)
+     */
+    public String acquire(String message) {
+        Entry entry = _entries.get(message);
+        if (entry == null) {
+            entry = new Entry(message);
+            _entries.put(message, entry);
+            _storedChars += message.length();
+        }
+
+        entry._references++;
+        _references++;
+        _referencedChars += message.length();
+        return entry._message;
+    }
+
+    /**
+     * Releases a reference to a message (the message is dropped with its last reference).
+     *
+     * @param message a message returned by {@link #acquire(String)}
+     */
+    public void release(String message) {
+        Entry entry = _entries.get(message);
+        if (entry == null) return;
+
+        _references--;
+        _referencedChars -= message.length();
+        if (--entry._references == 0) {
+            _entries.remove(message);
+            _storedChars -= message.length();
+        }
+    }
+
+    /**
+     *
+     * @return the number of distinct stored messages
+     */
+    public int size() {
+        return _entries.size();
+    }
+
+    /**
+     *
+     * @return the number of references to the stored messages
+     */
+    public long references() {
+        return _references;
+    }
+
+    /**
+     *
+     * @return the estimated heap saved (in bytes) by keeping each distinct message once,
+     *         net of the index of the messages (negative if there is little to share)
+     */
+    public long heapSaved() {
+        return (_references - size()) * STRING_OVERHEAD + (_referencedChars - _storedChars)
+                - (long) size() * ENTRY_OVERHEAD;
+    }
+
+    /**
+     *
+     * @return the estimated snapshot size saved (in bytes) by keeping each distinct message once,
+     *         net of the index of the messages (negative if there is little to share)
+     */
+    public long snapshotSaved() {
+        return (_references - size()) * (SERIALIZED_STRING_OVERHEAD - SERIALIZED_BACK_REFERENCE)
+                + (_referencedChars - _storedChars) - (long) size() * SERIALIZED_ENTRY_OVERHEAD;
+    }
+
+    /**
+     * Format: messages=N|references=R|heapSaved=H|snapshotSaved=S
+     *
+     * @return the string representation of this store, in the format described above
+     */
+    @Override
+    public String toString() {
+        String sep = "|";
+        return "messages=" + size()
+                + sep + "references=" + references()
+                + sep + "heapSaved=" + heapSaved()
+                + sep + "snapshotSaved=" + snapshotSaved();
+    }
+
+    @Serial
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeInt(_entries.size());
+        for (Entry entry : _entries.values()) {
+            out.writeObject(entry._message);
+            out.writeInt(entry._references);
+        }
+    }
+
+    @Serial
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        int size = in.readInt();
+        if (size < 0) throw new IOException("corrupted message store");
+
+        _entries = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            Entry entry = new Entry((String) in.readObject());
+            entry._references = in.readInt();
+            _entries.put(entry._message, entry);
+        }
+    }
+}
@@ -7,10 +7,10 @@ public class TextCommunication extends Communication {
 
     private final String _message;
 
-    public TextCommunication(int id, Terminal sender, Terminal receiver, String msg) {
-        super(id, sender, receiver);
+    public TextCommunication(int id, Terminal sender, Terminal receiver, String msg, long time) {
+        super(id, sender, receiver, time);
         _message = msg;
-        finish(msg.length());
+        finish(msg.length(), time);
     }
 
     public String getMessage() {
@@ -5,8 +5,8 @@ import prr.terminals.Terminal;
 
 public class VideoCommunication extends InteractiveCommunication {
 
-    public VideoCommunication(int id, Terminal sender, Terminal receiver) {
-        super(id, sender, receiver);
+    public VideoCommunication(int id, Terminal sender, Terminal receiver, long startTime) {
+        super(id, sender, receiver, startTime);
     }
 
     @Override
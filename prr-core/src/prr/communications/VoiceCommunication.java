@@ -5,8 +5,8 @@ import prr.terminals.Terminal;
 
 public class VoiceCommunication extends InteractiveCommunication {
 
-    public VoiceCommunication(int id, Terminal sender, Terminal receiver) {
-        super(id, sender, receiver);
+    public VoiceCommunication(int id, Terminal sender, Terminal receiver, long startTime) {
+        super(id, sender, receiver, startTime);
     }
 
     @Override
@@ -1,4 +1,8 @@
 package prr.exceptions;
 
 public class ClientNotFoundException extends Exception {
+
+    public ClientNotFoundException() {
+        super(null, null, false, false); // no stack trace
+    }
 }
@@ -1,4 +1,8 @@
 package prr.exceptions;
 
 public class CommunicationNotFoundException extends Exception {
+
+    public CommunicationNotFoundException() {
+        super(null, null, false, false); // no stack trace
+    }
 }
@@ -1,4 +1,8 @@
 package prr.exceptions;
 
 public class CommunicationTypeUnsupportedAtDestinationException extends Exception {
+
+    public CommunicationTypeUnsupportedAtDestinationException() {
+        super(null, null, false, false); // no stack trace
+    }
 }
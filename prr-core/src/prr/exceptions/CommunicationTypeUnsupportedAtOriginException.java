@@ -1,4 +1,8 @@
 package prr.exceptions;
 
 public class CommunicationTypeUnsupportedAtOriginException extends Exception {
+
+    public CommunicationTypeUnsupportedAtOriginException() {
+        super(null, null, false, false); // no stack trace
+    }
 }
@@ -1,5 +1,8 @@
 package prr.exceptions;
 
 public class DestinationIsBusyException extends Exception {
-    
+
+    public DestinationIsBusyException() {
+        super(null, null, false, false); // no stack trace
+    }
 }
@@ -1,5 +1,8 @@
 package prr.exceptions;
 
 public class DestinationIsOffException extends Exception {
-    
+
+    public DestinationIsOffException() {
+        super(null, null, false, false); // no stack trace
+    }
 }
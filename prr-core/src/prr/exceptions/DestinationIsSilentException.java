@@ -1,5 +1,8 @@
 package prr.exceptions;
 
 public class DestinationIsSilentException extends Exception {
-    
+
+    public DestinationIsSilentException() {
+        super(null, null, false, false); // no stack trace
+    }
 }
@@ -1,4 +1,8 @@
 package prr.exceptions;
 
 public class InvalidCommunicationTypeException extends Exception {
+
+    public InvalidCommunicationTypeException() {
+        super(null, null, false, false); // no stack trace
+    }
 }
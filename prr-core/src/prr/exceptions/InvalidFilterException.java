@@ -0,0 +1,28 @@
+package prr.exceptions;
+
+/**
+ * Exception for invalid communication filter expressions.
+ */
+public class InvalidFilterException extends Exception {
+
+	/** Class serial number. */
+	private static final long serialVersionUID = 202212011200L;
+
+	/** The condition that could not be parsed. */
+	private String _condition;
+
+	/**
+	 * @param condition
+	 */
+	public InvalidFilterException(String condition) {
+		_condition = condition;
+	}
+
+	/**
+	 * @return the bad condition.
+	 */
+	public String getCondition() {
+		return _condition;
+	}
+
+}
@@ -1,5 +1,8 @@
 package prr.exceptions;
 
 public class OriginIsBusyException extends Exception {
-    
+
+    public OriginIsBusyException() {
+        super(null, null, false, false); // no stack trace
+    }
 }
@@ -1,5 +1,8 @@
 package prr.exceptions;
 
 public class OriginIsOffException extends Exception {
-    
+
+    public OriginIsOffException() {
+        super(null, null, false, false); // no stack trace
+    }
 }
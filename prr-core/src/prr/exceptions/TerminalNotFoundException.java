@@ -1,4 +1,8 @@
 package prr.exceptions;
 
 public class TerminalNotFoundException extends Exception {
+
+    public TerminalNotFoundException() {
+        super(null, null, false, false); // no stack trace
+    }
 }
@@ -0,0 +1,35 @@
+package prr.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Monotonic counter (e.g. of operations or of bytes written).
+ * <p>
+ * The count is kept in a {@link LongAdder}, so incrementing from several threads never
+ * contends on a single cell.
+ */
+public class Counter {
+
+    private final LongAdder _count = new LongAdder();
+
+    public void increment() {
+        _count.increment();
+    }
+
+    /**
+     *
+     * @param amount the amount to add (should not be negative)
+     */
+    public void add(long amount) {
+        _count.add(amount);
+    }
+
+    public long count() {
+        return _count.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + count();
+    }
+}
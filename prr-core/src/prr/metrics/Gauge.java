@@ -0,0 +1,29 @@
+package prr.metrics;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Current value of some quantity (e.g. the number of registered clients), read from its
+ * source whenever the gauge is read.
+ */
+public class Gauge {
+
+    private final LongSupplier _source;
+
+    /**
+     *
+     * @param source the supplier of the current value
+     */
+    public Gauge(LongSupplier source) {
+        _source = source;
+    }
+
+    public long value() {
+        return _source.getAsLong();
+    }
+
+    @Override
+    public String toString() {
+        return "value=" + value();
+    }
+}
@@ -0,0 +1,111 @@
+package prr.metrics;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Log-linear histogram of non-negative values (e.g. latencies in nanoseconds).
+ * <p>
+ * Each power of two is split into {@value #SUB_BUCKETS} linear sub-buckets, so recorded
+ * values are kept with a relative error below 1/{@value #SUB_BUCKETS}. Every bucket is a
+ * {@link LongAdder}, so recording from several threads never contends on a single cell.
+ */
+public class Histogram implements Serializable {
+
+    @Serial private static final long serialVersionUID = 202212011200L;
+
+    /** Number of linear sub-buckets per power of two (must be a power of two). */
+    private static final int SUB_BUCKETS = 8;
+
+    /** log2(SUB_BUCKETS). */
+    private static final int SUB_BITS = Integer.numberOfTrailingZeros(SUB_BUCKETS);
+
+    private final LongAdder[] _buckets = new LongAdder[(64 - SUB_BITS + 1) * SUB_BUCKETS];
+    private final LongAdder _count = new LongAdder();
+    private final LongAdder _sum = new LongAdder();
+    /** The maximum (a LongAccumulator would hold a lambda, which cannot be serialized). */
+    private final AtomicLong _max = new AtomicLong();
+
+    public Histogram() {
+        for (int i = 0; i < _buckets.length; i++)
+            _buckets[i] = new LongAdder();
+    }
+
+    private static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int exp = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exp - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exp - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    private static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        int exp = bucket / SUB_BUCKETS + SUB_BITS - 1;
+        long sub = bucket % SUB_BUCKETS;
+        return ((SUB_BUCKETS + sub + 1) << (exp - SUB_BITS)) - 1;
+    }
+
+    /**
+     *
+     * @param value the value to record (negative values are recorded as zero)
+     */
+    public void record(long value) {
+        value = Math.max(0, value);
+        _buckets[bucketOf(value)].increment();
+        _count.increment();
+        _sum.add(value);
+        long max = _max.get();
+        while (value > max && !_max.compareAndSet(max, value))
+            max = _max.get();
+    }
+
+    public long count() {
+        return _count.sum();
+    }
+
+    public long max() {
+        return _max.get();
+    }
+
+    public double mean() {
+        long count = count();
+        return (count == 0) ? 0 : ((double) _sum.sum() / count);
+    }
+
+    /**
+     *
+     * @param quantile the quantile, between 0 and 1
+     * @return an upper bound of the value at the given quantile (0 if nothing was recorded)
+     */
+    public long percentile(double quantile) {
+        long count = count();
+        if (count == 0) return 0;
+
+        long rank = (long) Math.ceil(quantile * count);
+        long seen = 0;
+
+        for (int i = 0; i < _buckets.length; i++) {
+            seen += _buckets[i].sum();
+            if (seen >= Math.max(1, rank)) return Math.min(upperBoundOf(i), max());
+        }
+        return max();
+    }
+
+    /**
+     * Format: count=N|mean=M|p50=A|p90=B|p99=C|max=D
+     *
+     * @return the string representation of this histogram, in the format described above
+     */
+    @Override
+    public String toString() {
+        String sep = "|";
+        return "count=" + count()
+                + sep + "mean=" + Math.round(mean())
+                + sep + "p50=" + percentile(0.50)
+                + sep + "p90=" + percentile(0.90)
+                + sep + "p99=" + percentile(0.99)
+                + sep + "max=" + max();
+    }
+}
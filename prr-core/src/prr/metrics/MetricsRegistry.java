@@ -0,0 +1,123 @@
+package prr.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Named counters, gauges and histograms.
+ * <p>
+ * Metrics are created on first use and then shared: looking a metric up by name is a
+ * single (concurrent) map access and recording never locks, so metrics may be recorded
+ * from any thread.
+ */
+public class MetricsRegistry {
+
+    private final Map<String, Counter> _counters = new ConcurrentHashMap<>();
+    private final Map<String, Gauge> _gauges = new ConcurrentHashMap<>();
+    private final Map<String, Histogram> _histograms = new ConcurrentHashMap<>();
+
+    /** The timer of the periodic dump (null if not dumping). */
+    private Timer _dumpTimer;
+
+    /**
+     *
+     * @param name the name of the counter
+     * @return the counter with the given name (created if needed)
+     */
+    public Counter counter(String name) {
+        return _counters.computeIfAbsent(name, n -> new Counter());
+    }
+
+    /**
+     * Registers (or replaces) a gauge.
+     *
+     * @param name the name of the gauge
+     * @param source the supplier of the current value
+     * @return the gauge
+     */
+    public Gauge gauge(String name, LongSupplier source) {
+        Gauge gauge = new Gauge(source);
+        _gauges.put(name, gauge);
+        return gauge;
+    }
+
+    /**
+     *
+     * @param name the name of the histogram
+     * @return the histogram with the given name (created if needed)
+     */
+    public Histogram histogram(String name) {
+        return _histograms.computeIfAbsent(name, n -> new Histogram());
+    }
+
+    /**
+     * Writes all the metrics, one per line, sorted by name.
+     *
+     * @param out where to write
+     * @throws IOException if there is some error while writing
+     */
+    public void dump(Writer out) throws IOException {
+        out.write(toString());
+    }
+
+    /**
+     * Dumps all the metrics into the given file, periodically (each dump replaces the
+     * previous one). Dumping runs on a daemon thread.
+     *
+     * @param filename the name of the dump file
+     * @param period the time between two dumps, in milliseconds
+     */
+    public synchronized void startDump(String filename, long period) {
+        stopDump();
+
+        Path file = Path.of(filename);
+        Path tmp = Path.of(filename + ".tmp");
+
+        _dumpTimer = new Timer("metrics-dump", true);
+        _dumpTimer.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                try {
+                    Files.writeString(tmp, MetricsRegistry.this.toString(), StandardCharsets.UTF_8);
+                    Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (IOException | RuntimeException e) { /* just ignore (try again on the next period) */ }
+            }
+        }, period, period);
+    }
+
+    /**
+     * Stops the periodic dump (if any).
+     */
+    public synchronized void stopDump() {
+        if (_dumpTimer == null) return;
+        _dumpTimer.cancel();
+        _dumpTimer = null;
+    }
+
+    /**
+     * Format (one line per metric, sorted by name): name|kind|values
+     *
+     * @return the string representation of all the metrics, in the format described above
+     */
+    @Override
+    public String toString() {
+        Map<String, String> lines = new TreeMap<>();
+        _counters.forEach((name, m) -> lines.put(name, name + "|COUNTER|" + m));
+        _gauges.forEach((name, m) -> lines.put(name, name + "|GAUGE|" + m));
+        _histograms.forEach((name, m) -> lines.put(name, name + "|HISTOGRAM|" + m));
+
+        StringBuilder builder = new StringBuilder();
+        lines.values().forEach(line -> builder.append(line).append('\n'));
+        return builder.toString();
+    }
+}
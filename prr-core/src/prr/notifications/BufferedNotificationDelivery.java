@@ -0,0 +1,211 @@
+package prr.notifications;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serial;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import prr.clients.Client;
+import prr.metrics.Histogram;
+
+/**
+ * Delivery strategy that buffers notifications and delivers them in batches.
+ * <p>
+ * A batch is delivered as soon as it reaches the configured size or when its oldest
+ * notification has been waiting for longer than the configured delay, whichever comes
+ * first. The time between sending and delivering each notification is recorded in a
+ * latency histogram.
+ * <p>
+ * The same instance may (and should) be shared by many clients: a burst of notifications
+ * (e.g. a terminal being turned on after missing many calls) then becomes a few batched
+ * writes instead of one write per client.
+ * <p>
+ * Pending notifications are not saved with the network (saving never delivers anything):
+ * they are delivered by the instance that buffered them, when it is flushed or closed.
+ *
+ * @see ChannelNotificationDelivery
+ */
+public abstract class BufferedNotificationDelivery implements NotificationDeliveryStrategy, Closeable {
+
+    @Serial private static final long serialVersionUID = 202212011200L;
+
+    /** A notification (or a digest of notifications) waiting to be delivered. */
+    protected record Pending(String recipient, String text, long enqueuedAt) {
+
+        /**
+         * Format: idClient|text (e.g. idClient|tipo-de-notificação|idTerminal)
+         *
+         * @return the string representation of this pending notification.
+         */
+        @Override
+        public String toString() {
+            return recipient() + "|" + text();
+        }
+    }
+
+    /** Maximum number of notifications per batch. */
+    private final int _batchSize;
+
+    /** Maximum time (in milliseconds) a notification waits before being delivered. */
+    private final long _maxDelay;
+
+    /** Notifications not yet delivered (not saved). */
+    private transient List<Pending> _pending = new ArrayList<>();
+
+    /** Delivery latency (in nanoseconds) of each notification. */
+    private final Histogram _latency = new Histogram();
+
+    /** Number of batches delivered. */
+    private long _batches;
+
+    /** Number of notifications lost because their batch could not be delivered. */
+    private long _failures;
+
+    private transient Timer _timer;
+    private transient TimerTask _scheduledFlush;
+
+    /**
+     * 
+     * @param batchSize the maximum number of notifications per batch
+     * @param maxDelay the maximum time (in milliseconds) a notification waits before being delivered
+     */
+    protected BufferedNotificationDelivery(int batchSize, long maxDelay) {
+        if (batchSize < 1 || maxDelay < 0) throw new IllegalArgumentException();
+        _batchSize = batchSize;
+        _maxDelay = maxDelay;
+    }
+
+    @Override
+    public void send(Client recipient, Notification notif) {
+        enqueue(new Pending(recipient.getUID(), notif.toString(), System.nanoTime()));
+    }
+
+    /**
+     * Buffers a pending notification, delivering the batch if it is full.
+     * 
+     * @param pending the notification to deliver
+     */
+    synchronized void enqueue(Pending pending) {
+        _pending.add(pending);
+
+        if (_pending.size() >= _batchSize || _maxDelay == 0) {
+            flush();
+        } else if (_scheduledFlush == null) {
+            scheduleFlush();
+        }
+    }
+
+    /**
+     * Delivers all pending notifications as a single batch.
+     */
+    @Override
+    public synchronized void flush() {
+        cancelScheduledFlush();
+
+        if (_pending.isEmpty()) return;
+
+        List<Pending> batch = List.copyOf(_pending);
+        _pending.clear();
+
+        try {
+            deliver(batch);
+        } catch (IOException e) {
+            _failures += batch.size();
+            return;
+        }
+
+        long now = System.nanoTime();
+        batch.forEach(p -> _latency.record(now - p.enqueuedAt()));
+        _batches++;
+    }
+
+    /**
+     * Delivers all pending notifications and releases the underlying channel.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        flush();
+
+        if (_timer != null) {
+            _timer.cancel();
+            _timer = null;
+        }
+
+        closeChannel();
+    }
+
+    /**
+     * 
+     * @return the delivery latency (in nanoseconds) of the notifications delivered so far
+     */
+    public Histogram getLatency() {
+        return _latency;
+    }
+
+    /**
+     * 
+     * @return the number of batches delivered so far
+     */
+    public synchronized long getBatchCount() {
+        return _batches;
+    }
+
+    /**
+     * 
+     * @return the number of notifications that could not be delivered
+     */
+    public synchronized long getFailureCount() {
+        return _failures;
+    }
+
+    /**
+     * Delivers a batch.
+     * 
+     * @param batch the notifications to deliver (never empty)
+     * @throws IOException if the batch could not be delivered
+     */
+    protected abstract void deliver(List<Pending> batch) throws IOException;
+
+    /**
+     * Releases the underlying channel (it is opened again by the next write).
+     * 
+     * @throws IOException if there is an error while closing the channel
+     */
+    protected void closeChannel() throws IOException {
+        /* empty (should be overriden) */
+    }
+
+    private void scheduleFlush() {
+        if (_timer == null) _timer = new Timer("notification-delivery", true);
+
+        _scheduledFlush = new TimerTask() {
+            @Override
+            public void run() {
+                flush();
+            }
+        };
+        _timer.schedule(_scheduledFlush, _maxDelay);
+    }
+
+    private void cancelScheduledFlush() {
+        if (_scheduledFlush == null) return;
+        _scheduledFlush.cancel();
+        _scheduledFlush = null;
+    }
+
+    @Serial
+    private synchronized void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject(); // the counters may be changed by a scheduled flush
+    }
+
+    @Serial
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        _pending = new ArrayList<>();
+    }
+}
@@ -0,0 +1,52 @@
+package prr.notifications;
+
+import java.io.IOException;
+import java.io.Serial;
+import java.util.List;
+
+/**
+ * Buffered delivery that writes each batch, formatted as text, to an underlying channel
+ * (e.g. a spool file or a socket).
+ */
+public abstract class ChannelNotificationDelivery extends BufferedNotificationDelivery {
+
+    @Serial private static final long serialVersionUID = 202212011200L;
+
+    /**
+     * 
+     * @param batchSize the maximum number of notifications per batch
+     * @param maxDelay the maximum time (in milliseconds) a notification waits before being delivered
+     */
+    protected ChannelNotificationDelivery(int batchSize, long maxDelay) {
+        super(batchSize, maxDelay);
+    }
+
+    /**
+     * Formats the batch and writes it to the channel.
+     */
+    @Override
+    protected void deliver(List<Pending> batch) throws IOException {
+        write(format(batch));
+    }
+
+    /**
+     * Converts a batch into the text written to the channel. By default, each notification
+     * is written in its own line.
+     * 
+     * @param batch the notifications to deliver (never empty)
+     * @return the text to write
+     */
+    protected String format(List<Pending> batch) {
+        StringBuilder builder = new StringBuilder();
+        batch.forEach(p -> builder.append(p).append('\n'));
+        return builder.toString();
+    }
+
+    /**
+     * Writes a batch to the underlying channel (opening it if needed).
+     * 
+     * @param text the formatted batch
+     * @throws IOException if the batch could not be written
+     */
+    protected abstract void write(String text) throws IOException;
+}
@@ -0,0 +1,59 @@
+package prr.notifications;
+
+import java.io.IOException;
+import java.io.Serial;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aggregates each batch into one digest per recipient and hands the digests to another
+ * buffered delivery (e.g. a spool file or a socket), which buffers, writes and measures
+ * them like any other notification.
+ */
+public class DigestNotificationDelivery extends BufferedNotificationDelivery {
+
+    @Serial private static final long serialVersionUID = 202212011200L;
+
+    /** The delivery used to write the digests. */
+    private final BufferedNotificationDelivery _target;
+
+    /**
+     * 
+     * @param target the delivery used to write the digests
+     * @param batchSize the maximum number of notifications per batch
+     * @param maxDelay the maximum time (in milliseconds) a notification waits before being delivered
+     */
+    public DigestNotificationDelivery(BufferedNotificationDelivery target, int batchSize, long maxDelay) {
+        super(batchSize, maxDelay);
+        _target = target;
+    }
+
+    /**
+     * Hands one digest per recipient to the target. Each digest is as old as its oldest
+     * notification, so the target's latency covers the whole path.
+     * <p>
+     * Format (one line per recipient): idClient|DIGEST|count|tipo|idTerminal,...,tipo|idTerminal
+     */
+    @Override
+    protected void deliver(List<Pending> batch) {
+        Map<String, List<Pending>> digests = new LinkedHashMap<>();
+        batch.forEach(p -> digests.computeIfAbsent(p.recipient(), r -> new ArrayList<>()).add(p));
+
+        digests.forEach((recipient, pending) -> {
+            StringBuilder builder = new StringBuilder("DIGEST|").append(pending.size()).append('|');
+
+            for (int i = 0; i < pending.size(); i++) {
+                if (i > 0) builder.append(',');
+                builder.append(pending.get(i).text());
+            }
+            _target.enqueue(new Pending(recipient, builder.toString(), pending.get(0).enqueuedAt()));
+        });
+    }
+
+    @Override
+    protected void closeChannel() throws IOException {
+        _target.close();
+    }
+}
@@ -0,0 +1,55 @@
+package prr.notifications;
+
+import java.io.IOException;
+import java.io.Serial;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Delivers notifications by appending them to a spool file (one line per notification).
+ */
+public class FileSpoolNotificationDelivery extends ChannelNotificationDelivery {
+
+    @Serial private static final long serialVersionUID = 202212011200L;
+
+    /** The name of the spool file. */
+    private final String _filename;
+
+    private transient Writer _writer;
+
+    /**
+     * 
+     * @param filename the name of the spool file
+     * @param batchSize the maximum number of notifications per batch
+     * @param maxDelay the maximum time (in milliseconds) a notification waits before being delivered
+     */
+    public FileSpoolNotificationDelivery(String filename, int batchSize, long maxDelay) {
+        super(batchSize, maxDelay);
+        _filename = filename;
+    }
+
+    public String getFilename() {
+        return _filename;
+    }
+
+    @Override
+    protected void write(String text) throws IOException {
+        if (_writer == null) {
+            _writer = Files.newBufferedWriter(Path.of(_filename), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+
+        _writer.write(text);
+        _writer.flush();
+    }
+
+    @Override
+    protected void closeChannel() throws IOException {
+        if (_writer == null) return;
+        _writer.close();
+        _writer = null;
+    }
+}
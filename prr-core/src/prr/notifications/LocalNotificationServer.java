@@ -0,0 +1,115 @@
+package prr.notifications;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stand-in notification server, listening on the loopback interface. It simply collects
+ * every line it receives, so it can replace a real notification server when testing
+ * {@link SocketNotificationDelivery}.
+ * <p>
+ * It is exercised by {@link prr.benchmarks.NotificationDeliveryBenchmark}, which checks
+ * that every notification of a network reaches the server, with or without digests.
+ */
+public class LocalNotificationServer implements AutoCloseable {
+
+    private final ServerSocket _server;
+
+    /** All the lines received so far. */
+    private final List<String> _received = new ArrayList<>();
+
+    /**
+     * Starts a server on an ephemeral port.
+     * 
+     * @throws IOException if the server socket cannot be opened
+     */
+    public LocalNotificationServer() throws IOException {
+        this(0);
+    }
+
+    /**
+     * 
+     * @param port the port to listen on (0 for an ephemeral port)
+     * @throws IOException if the server socket cannot be opened
+     */
+    public LocalNotificationServer(int port) throws IOException {
+        _server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+
+        Thread acceptor = new Thread(this::accept, "notification-server");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * 
+     * @return the port this server is listening on
+     */
+    public int getPort() {
+        return _server.getLocalPort();
+    }
+
+    /**
+     * 
+     * @return all the lines received so far
+     */
+    public List<String> getReceived() {
+        synchronized (_received) {
+            return List.copyOf(_received);
+        }
+    }
+
+    /**
+     * Waits until at least the given number of lines has been received.
+     * 
+     * @param lines the number of lines to wait for
+     * @param timeout the maximum time to wait (in milliseconds)
+     * @return true if the lines were received, false if the time ran out
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean await(int lines, long timeout) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeout;
+
+        synchronized (_received) {
+            long left;
+            while (_received.size() < lines && (left = deadline - System.currentTimeMillis()) > 0)
+                _received.wait(left);
+            return (_received.size() >= lines);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        _server.close();
+    }
+
+    private void accept() {
+        try {
+            while (true) {
+                Socket socket = _server.accept();
+                Thread reader = new Thread(() -> read(socket), "notification-server-connection");
+                reader.setDaemon(true);
+                reader.start();
+            }
+        } catch (IOException e) { /* closed */ }
+    }
+
+    private void read(Socket socket) {
+        try (socket; BufferedReader in = new BufferedReader(
+                new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                synchronized (_received) {
+                    _received.add(line);
+                    _received.notifyAll();
+                }
+            }
+        } catch (IOException e) { /* connection lost */ }
+    }
+}
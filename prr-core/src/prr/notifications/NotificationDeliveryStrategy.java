@@ -2,6 +2,21 @@ package prr.notifications;
 
 import java.io.Serializable;
 
+import prr.clients.Client;
+
 public interface NotificationDeliveryStrategy extends Serializable {
-    void send(Notification notif);
+
+    /**
+     * 
+     * @param recipient the client the notification is addressed to
+     * @param notif the notification to deliver
+     */
+    void send(Client recipient, Notification notif);
+
+    /**
+     * Delivers any notification that is still pending (buffered strategies only).
+     */
+    default void flush() {
+        /* empty (nothing is buffered by default) */
+    }
 }
@@ -0,0 +1,65 @@
+package prr.notifications;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Serial;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Delivers notifications to a notification server through a TCP socket (one line per
+ * notification). The connection is opened on the first delivery and re-opened after errors.
+ *
+ * @see LocalNotificationServer
+ */
+public class SocketNotificationDelivery extends ChannelNotificationDelivery {
+
+    @Serial private static final long serialVersionUID = 202212011200L;
+
+    private final String _host;
+    private final int _port;
+
+    private transient Socket _socket;
+    private transient OutputStream _out;
+
+    /**
+     * 
+     * @param host the host of the notification server
+     * @param port the port of the notification server
+     * @param batchSize the maximum number of notifications per batch
+     * @param maxDelay the maximum time (in milliseconds) a notification waits before being delivered
+     */
+    public SocketNotificationDelivery(String host, int port, int batchSize, long maxDelay) {
+        super(batchSize, maxDelay);
+        _host = host;
+        _port = port;
+    }
+
+    @Override
+    protected void write(String text) throws IOException {
+        try {
+            if (_socket == null) {
+                _socket = new Socket(_host, _port);
+                _out = _socket.getOutputStream();
+            }
+
+            _out.write(text.getBytes(StandardCharsets.UTF_8));
+            _out.flush();
+        } catch (IOException e) {
+            closeChannel();
+            throw e;
+        }
+    }
+
+    @Override
+    protected void closeChannel() throws IOException {
+        if (_socket == null) return;
+
+        try {
+            _socket.close();
+        } finally {
+            _socket = null;
+            _out = null;
+        }
+    }
+}
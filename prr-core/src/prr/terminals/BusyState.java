@@ -1,23 +1,16 @@
 package prr.terminals;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.io.Serial;
 
 import prr.clients.Client;
 
 class BusyState extends TerminalState {
 
-    private final Set<Client> _missedInteractiveComms;
-    private final TerminalState _prev;
+    /** The shared instance. */
+    static final BusyState INSTANCE = new BusyState();
 
-    public BusyState(Terminal term, TerminalState prev) {
-        this(term, prev, new HashSet<>());
-    }
-
-    public BusyState(Terminal term, TerminalState prev, Set<Client> missedInteractiveComms) {
-        super(term);
-        _prev = prev;
-        _missedInteractiveComms = missedInteractiveComms;
+    private BusyState() {
+        /* empty (use INSTANCE) */
     }
 
     @Override
@@ -26,42 +19,48 @@ class BusyState extends TerminalState {
     }
 
     @Override
-    public void turnOn() throws IllegalStateException {
+    public void turnOn(Terminal term) throws IllegalStateException {
         throw new IllegalStateException();
     }
 
     @Override
-    public void turnOff() throws IllegalStateException {
+    public void turnOff(Terminal term) throws IllegalStateException {
         throw new IllegalStateException();
     }
 
     @Override
-    public void silence() throws IllegalStateException {
+    public void silence(Terminal term) throws IllegalStateException {
         throw new IllegalStateException();
     }
 
     @Override
-    public boolean canEndCurrentCommunication() {
-        return (_term.getOngoingCommunication().getOrigin() == _term);
+    public boolean canEndCurrentCommunication(Terminal term) {
+        return (term.getOngoingCommunication().getOrigin() == term);
     }
 
     @Override
-    public void onInteractiveCommunicationAttempt(Client from) {
+    public void onInteractiveCommunicationAttempt(Terminal term, Client from) {
         if (!from.canReceiveNotifications()) return;
-        _missedInteractiveComms.add(from);
+        term.addMissedContact(from, MissedContacts.INTERACTIVE);
     }
 
     @Override
-    public void onEndInteractiveCommunication() {
-        _term.setState(_prev);
+    public void onEndInteractiveCommunication(Terminal term) {
+        TerminalState prev = term.getPreviousState();
+        term.setState(prev);
 
-        if (!_prev.isIdle()) return;
+        if (!prev.isIdle()) return;
 
-        sendNotif(createNotif("B2I"), _missedInteractiveComms);
+        sendNotif(createNotif(term, "B2I"), term, MissedContacts.INTERACTIVE);
     }
 
     @Override
     public String toString() {
         return "BUSY";
     }
+
+    @Serial
+    private Object readResolve() {
+        return INSTANCE;
+    }
 }
@@ -1,9 +1,14 @@
 package prr.terminals;
 
+import java.io.Serial;
+
 class IdleState extends TerminalState {
 
-    public IdleState(Terminal term) {
-        super(term);
+    /** The shared instance. */
+    static final IdleState INSTANCE = new IdleState();
+
+    private IdleState() {
+        /* empty (use INSTANCE) */
     }
 
     @Override
@@ -12,7 +17,7 @@ class IdleState extends TerminalState {
     }
 
     @Override
-    public void turnOn() throws IllegalStateException {
+    public void turnOn(Terminal term) throws IllegalStateException {
         /* do nothing (already on/idle) */
     }
 
@@ -22,12 +27,17 @@ class IdleState extends TerminalState {
     }
 
     @Override
-    public void onStartInteractiveCommunication() {
-        _term.setState(new BusyState(_term, this));
+    public void onStartInteractiveCommunication(Terminal term) {
+        term.setState(BusyState.INSTANCE);
     }
 
     @Override
     public String toString() {
         return "IDLE";
     }
+
+    @Serial
+    private Object readResolve() {
+        return INSTANCE;
+    }
 }
@@ -0,0 +1,112 @@
+package prr.terminals;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Compact set of the clients (by handle) that failed to contact a terminal, together with
+ * the kind of communication each of them attempted last.
+ * <p>
+ * Handles are kept in a small open-addressed table (linear probing), which grows only when
+ * more than half full.
+ */
+class MissedContacts implements Serializable {
+
+    @Serial private static final long serialVersionUID = 202212011200L;
+
+    /** Kind of a missed text communication. */
+    static final int TEXT = 1;
+
+    /** Kind of a missed interactive communication. */
+    static final int INTERACTIVE = 2;
+
+    /** Marks an empty slot (handles are never negative). */
+    private static final int EMPTY = -1;
+
+    private int[] _handles = newTable(4);
+    private byte[] _kinds = new byte[4];
+    private int _size;
+
+    private static int[] newTable(int capacity) {
+        int[] table = new int[capacity];
+        Arrays.fill(table, EMPTY);
+        return table;
+    }
+
+    /**
+     *
+     * @return true if there are no missed contacts
+     */
+    boolean isEmpty() {
+        return (_size == 0);
+    }
+
+    /**
+     * Registers a missed contact, replacing the kind previously registered for the same client.
+     *
+     * @param handle the handle of the client
+     * @param kind the kind of the communication attempted ({@link #TEXT} or {@link #INTERACTIVE})
+     */
+    void add(int handle, int kind) {
+        int slot = slotOf(_handles, handle);
+
+        if (_handles[slot] == EMPTY) {
+            if (2 * (_size + 1) > _handles.length) {
+                resize(2 * _handles.length);
+                slot = slotOf(_handles, handle);
+            }
+            _handles[slot] = handle;
+            _size++;
+        }
+        _kinds[slot] = (byte) kind;
+    }
+
+    /**
+     * Removes (and returns) the missed contacts of the given kinds.
+     *
+     * @param kinds the kinds to remove (bitwise or of {@link #TEXT} and {@link #INTERACTIVE})
+     * @return the handles of the removed clients
+     */
+    int[] drain(int kinds) {
+        int[] drained = new int[_size];
+        int count = 0;
+
+        for (int i = 0; i < _handles.length; i++) {
+            if (_handles[i] != EMPTY && (_kinds[i] & kinds) != 0) {
+                drained[count++] = _handles[i];
+                _handles[i] = EMPTY;
+            }
+        }
+
+        if (count > 0) {
+            _size -= count;
+            resize(_handles.length); // rehash (removals break probe sequences)
+        }
+        return Arrays.copyOf(drained, count);
+    }
+
+    private static int slotOf(int[] table, int handle) {
+        int mask = table.length - 1;
+        int slot = (handle * 0x9E3779B9) >>> 1 & mask;
+
+        while (table[slot] != EMPTY && table[slot] != handle)
+            slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    private void resize(int capacity) {
+        int[] handles = _handles;
+        byte[] kinds = _kinds;
+
+        _handles = newTable(capacity);
+        _kinds = new byte[capacity];
+
+        for (int i = 0; i < handles.length; i++) {
+            if (handles[i] == EMPTY) continue;
+            int slot = slotOf(_handles, handles[i]);
+            _handles[slot] = handles[i];
+            _kinds[slot] = kinds[i];
+        }
+    }
+}
@@ -1,23 +1,17 @@
 package prr.terminals;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.io.Serial;
 
 import prr.clients.Client;
 import prr.notifications.Notification;
 
 class OffState extends TerminalState {
 
-    private final Set<Client> _missedTextComms = new HashSet<>();
-    private final Set<Client> _missedInteractiveComms;
+    /** The shared instance. */
+    static final OffState INSTANCE = new OffState();
 
-    public OffState(Terminal term) {
-        this(term, new HashSet<>());
-    }
-
-    public OffState(Terminal term, Set<Client> missedInteractiveComms) {
-        super(term);
-        _missedInteractiveComms = missedInteractiveComms;
+    private OffState() {
+        /* empty (use INSTANCE) */
     }
 
     @Override
@@ -26,42 +20,44 @@ class OffState extends TerminalState {
     }
 
     @Override
-    public void turnOn() throws IllegalStateException {
-        super.turnOn();
+    public void turnOn(Terminal term) throws IllegalStateException {
+        super.turnOn(term);
 
-        Notification notif = createNotif("O2I");
-        sendNotif(notif, _missedTextComms);
-        sendNotif(notif, _missedInteractiveComms);
+        Notification notif = createNotif(term, "O2I");
+        sendNotif(notif, term, MissedContacts.TEXT | MissedContacts.INTERACTIVE);
     }
 
     @Override
-    public void turnOff() throws IllegalStateException {
+    public void turnOff(Terminal term) throws IllegalStateException {
         /* do nothing (already off) */
     }
 
     @Override
-    public void silence() throws IllegalStateException {
-        _term.setState(new SilentState(_term, _missedInteractiveComms));
+    public void silence(Terminal term) throws IllegalStateException {
+        term.setState(SilentState.INSTANCE);
 
-        sendNotif(createNotif("O2S"), _missedTextComms);
+        sendNotif(createNotif(term, "O2S"), term, MissedContacts.TEXT);
     }
 
     @Override
-    public void onTextCommunicationAttempt(Client from) {
+    public void onTextCommunicationAttempt(Terminal term, Client from) {
         if (!from.canReceiveNotifications()) return;
-        _missedInteractiveComms.remove(from);
-        _missedTextComms.add(from);
+        term.addMissedContact(from, MissedContacts.TEXT);
     }
 
     @Override
-    public void onInteractiveCommunicationAttempt(Client from) {
+    public void onInteractiveCommunicationAttempt(Terminal term, Client from) {
         if (!from.canReceiveNotifications()) return;
-        _missedTextComms.remove(from);
-        _missedInteractiveComms.add(from);
+        term.addMissedContact(from, MissedContacts.INTERACTIVE);
     }
 
     @Override
     public String toString() {
         return "OFF";
     }
+
+    @Serial
+    private Object readResolve() {
+        return INSTANCE;
+    }
 }
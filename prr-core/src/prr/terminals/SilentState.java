@@ -1,37 +1,32 @@
 package prr.terminals;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.io.Serial;
 
 import prr.clients.Client;
 
 class SilentState extends TerminalState {
 
-    private final Set<Client> _missedInteractiveComms;
+    /** The shared instance. */
+    static final SilentState INSTANCE = new SilentState();
 
-    public SilentState(Terminal term) {
-        this(term, new HashSet<>());
-    }
-
-    public SilentState(Terminal term, Set<Client> missedInteractiveComms) {
-        super(term);
-        _missedInteractiveComms = missedInteractiveComms;
+    private SilentState() {
+        /* empty (use INSTANCE) */
     }
 
     @Override
-    public void turnOn() throws IllegalStateException {
-        super.turnOn();
+    public void turnOn(Terminal term) throws IllegalStateException {
+        super.turnOn(term);
 
-        sendNotif(createNotif("S2I"), _missedInteractiveComms);
+        sendNotif(createNotif(term, "S2I"), term, MissedContacts.INTERACTIVE);
     }
 
     @Override
-    public void turnOff() throws IllegalStateException {
-        _term.setState(new OffState(_term, _missedInteractiveComms));
+    public void turnOff(Terminal term) throws IllegalStateException {
+        term.setState(OffState.INSTANCE);
     }
 
     @Override
-    public void silence() throws IllegalStateException {
+    public void silence(Terminal term) throws IllegalStateException {
         /* do nothing (already silent) */
     }
 
@@ -41,14 +36,14 @@ class SilentState extends TerminalState {
     }
 
     @Override
-    public void onInteractiveCommunicationAttempt(Client from) {
+    public void onInteractiveCommunicationAttempt(Terminal term, Client from) {
         if (!from.canReceiveNotifications()) return;
-        _missedInteractiveComms.add(from);
+        term.addMissedContact(from, MissedContacts.INTERACTIVE);
     }
 
     @Override
-    public void onStartInteractiveCommunication() {
-        _term.setState(new BusyState(_term, this, _missedInteractiveComms));
+    public void onStartInteractiveCommunication(Terminal term) {
+        term.setState(BusyState.INSTANCE);
     }
 
     @Override
@@ -60,4 +55,9 @@ class SilentState extends TerminalState {
     public String toString() {
         return "SILENCE";
     }
+
+    @Serial
+    private Object readResolve() {
+        return INSTANCE;
+    }
 }
@@ -6,16 +6,19 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.function.BiConsumer;
 
 import prr.Network;
 import prr.clients.Client;
 import prr.communications.Communication;
 import prr.communications.CommunicationStatus;
 import prr.exceptions.AlreadyFriendsException;
+import prr.exceptions.ClientNotFoundException;
 import prr.exceptions.CommunicationNotFoundException;
 import prr.exceptions.FriendNotFoundException;
 import prr.exceptions.InvalidTerminalUIDException;
 import prr.exceptions.TerminalNotFoundException;
+import prr.notifications.Notification;
 
 // FIXME add more import if needed (cannot import from pt.tecnico or prr.app)
 
@@ -31,6 +34,23 @@ abstract public class Terminal implements Serializable {
     private final String _uid;
     private final Client _owner;
 
+    /** Incremented whenever something shown by {@link #toString()} changes. */
+    private int _version;
+
+    /** The last rendering of this terminal (rebuilt when the version changes). */
+    private transient String _rendered;
+
+    /** The version of the last rendering. */
+    private transient int _renderedVersion;
+
+    /**
+     * 
+     * @return the modification counter of this terminal
+     */
+    public int getVersion() {
+        return _version;
+    }
+
     public Terminal(Network network, Client owner, String id) throws InvalidTerminalUIDException {
         validateID(_uid = id);
         _network = network;
@@ -58,6 +78,14 @@ abstract public class Terminal implements Serializable {
         return _owner;
     }
 
+    /**
+     *
+     * @return the current time of the network's clock (in milliseconds since the epoch).
+     */
+    public long currentTimeMillis() {
+        return _network.getClock().millis();
+    }
+
     /*
      * ---- Friends ----
      */
@@ -93,9 +121,21 @@ abstract public class Terminal implements Serializable {
      */
     public void addFriend(String friend) throws TerminalNotFoundException, AlreadyFriendsException {
         if (getUID().equals(friend)) return; // a terminal cannot be friend of itself
-        Terminal term = _network.getTerminal(friend); // throws TerminalNotFoundException
-        if (_friends.putIfAbsent(friend, term) != null)
+
+        Terminal term;
+        try {
+            term = _network.getTerminal(friend);
+        } catch (TerminalNotFoundException e) {
+            _network.onTerminalOperation("addFriend", "TERMINAL_NOT_FOUND");
+            throw e;
+        }
+
+        if (_friends.putIfAbsent(friend, term) != null) {
+            _network.onTerminalOperation("addFriend", "ALREADY_FRIENDS");
             throw new AlreadyFriendsException();
+        }
+        _version++;
+        _network.onTerminalOperation("addFriend", null);
     }
 
     /**
@@ -104,7 +144,12 @@ abstract public class Terminal implements Serializable {
      * @throws FriendNotFoundException if the friend was not found
      */
     public void removeFriend(String friend) throws FriendNotFoundException {
-        if (_friends.remove(friend) == null) throw new FriendNotFoundException();
+        if (_friends.remove(friend) == null) {
+            _network.onTerminalOperation("removeFriend", "FRIEND_NOT_FOUND");
+            throw new FriendNotFoundException();
+        }
+        _version++;
+        _network.onTerminalOperation("removeFriend", null);
     }
 
     /**
@@ -128,10 +173,20 @@ abstract public class Terminal implements Serializable {
      * ---- State ----
      */
 
-    private TerminalState _state = new IdleState(this);
+    /** The current state. */
+    private TerminalState _state = IdleState.INSTANCE;
+
+    /** The state before the current one (to return to after a communication ends). */
+    private TerminalState _prevState = IdleState.INSTANCE;
 
     void setState(TerminalState state) {
+        _prevState = _state;
         _state = state;
+        _version++;
+    }
+
+    TerminalState getPreviousState() {
+        return _prevState;
     }
 
     public boolean isOff() {
@@ -151,15 +206,69 @@ abstract public class Terminal implements Serializable {
     }
 
     public void turnOn() throws IllegalStateException {
-        _state.turnOn();
+        changeState("turnOn", TerminalState::turnOn);
     }
 
     public void turnOff() throws IllegalStateException {
-        _state.turnOff();
+        changeState("turnOff", TerminalState::turnOff);
     }
 
     public void silence() throws IllegalStateException {
-        _state.silence();
+        changeState("silence", TerminalState::silence);
+    }
+
+    /**
+     * Applies a state operation, telling the network whether it was done or rejected.
+     * 
+     * @param operation the name of the operation
+     * @param change the operation (which throws IllegalStateException if not allowed in the current state)
+     * @throws IllegalStateException if the operation is not allowed in the current state
+     */
+    private void changeState(String operation, BiConsumer<TerminalState, Terminal> change)
+            throws IllegalStateException {
+        try {
+            change.accept(_state, this);
+        } catch (IllegalStateException e) {
+            _network.onTerminalOperation(operation, "BUSY");
+            throw e;
+        }
+        _network.onTerminalOperation(operation, null);
+    }
+
+    /*
+     * ---- Missed Contacts ----
+     */
+
+    /** The clients that failed to contact this terminal (null if there are none). */
+    private MissedContacts _missed;
+
+    /**
+     * 
+     * @param from the client that failed to contact this terminal
+     * @param kind the kind of communication attempted
+     */
+    void addMissedContact(Client from, int kind) {
+        if (_missed == null) _missed = new MissedContacts();
+        _missed.add(from.getHandle(), kind);
+    }
+
+    /**
+     * Sends the notification to the clients that missed the given kinds of communication,
+     * which are then forgotten.
+     * 
+     * @param notif the notification to send
+     * @param kinds the kinds of missed communications (see {@link MissedContacts})
+     */
+    void notifyMissedContacts(Notification notif, int kinds) {
+        if (_missed == null) return;
+
+        for (int handle : _missed.drain(kinds)) {
+            try {
+                _network.getClient(handle).sendNotification(notif);
+            } catch (ClientNotFoundException e) { /* just ignore */ }
+        }
+
+        if (_missed.isEmpty()) _missed = null;
     }
 
     /*
@@ -175,6 +284,9 @@ abstract public class Terminal implements Serializable {
     /** The ongoing communication (might be null). */
     private Communication _ongoing;
 
+    /** If this terminal was ever used (archived communications are not in the boxes). */
+    private boolean _used;
+
     /**
      * 
      * @param id the id of the communication
@@ -228,7 +340,7 @@ abstract public class Terminal implements Serializable {
      * @return true if the terminal is unused (has no communications yet)
      */
     public boolean isUnused() {
-        return (_outbox.isEmpty() && _inbox.isEmpty());
+        return !_used;
     }
 
     /**
@@ -238,7 +350,7 @@ abstract public class Terminal implements Serializable {
      *          it was the originator of this communication.
      **/
     public boolean canEndCurrentCommunication() {
-        return _state.canEndCurrentCommunication();
+        return _state.canEndCurrentCommunication(this);
     }
 
     /**
@@ -257,9 +369,8 @@ abstract public class Terminal implements Serializable {
      * @param commID the id of the communication
      */
     public void onTextCommunication(int commID) {
-        try {
-            addCommunication(_network.getCommunication(commID));
-        } catch (CommunicationNotFoundException e) { /* just ignore */ }
+        Communication comm = _network.findCommunication(commID);
+        if (comm != null) addCommunication(comm);
     }
 
     /**
@@ -269,14 +380,13 @@ abstract public class Terminal implements Serializable {
      * @param commID the id of the communication
      */
     public void onStartInteractiveCommunication(int commID) {
-        try {
-            Communication comm = _network.getCommunication(commID);
+        Communication comm = _network.findCommunication(commID);
 
-            if (!addCommunication(comm)) return;
+        if (comm == null) return;
+        if (!addCommunication(comm)) return;
 
-            _ongoing = comm;
-            _state.onStartInteractiveCommunication();
-        } catch (CommunicationNotFoundException e) { /* just ignore */ }
+        _ongoing = comm;
+        _state.onStartInteractiveCommunication(this);
     }
 
     /**
@@ -286,7 +396,7 @@ abstract public class Terminal implements Serializable {
      * @param from the client that made the attempt
      */
     public void onTextCommunicationAttempt(Client from) {
-        _state.onTextCommunicationAttempt(from);
+        _state.onTextCommunicationAttempt(this, from);
     }
 
     /**
@@ -296,18 +406,27 @@ abstract public class Terminal implements Serializable {
      * @param from the client that made the attempt
      */
     public void onInteractiveCommunicationAttempt(Client from) {
-        _state.onInteractiveCommunicationAttempt(from);
+        _state.onInteractiveCommunicationAttempt(this, from);
     }
 
     private boolean addCommunication(Communication comm) {
         boolean outbox = addToOutbox(comm);
         boolean inbox = addToInbox(comm);
+
+        if (!_used && (inbox || outbox)) {
+            _used = true;
+            _network.onTerminalUsed(this);
+        }
         return (inbox || outbox);
     }
 
     private boolean addToOutbox(Communication comm) {
-        return comm.isOrigin(getUID())
-                && (_outbox.putIfAbsent(comm.getUID(), comm) == null);
+        if (!comm.isOrigin(getUID())) return false;
+        if (_outbox.putIfAbsent(comm.getUID(), comm) != null) return false;
+
+        if (comm.getStatus() == CommunicationStatus.FINISHED && !comm.isPaid())
+            updateCredits(0, comm.getCost());
+        return true;
     }
 
     private boolean addToInbox(Communication comm) {
@@ -316,14 +435,19 @@ abstract public class Terminal implements Serializable {
     }
 
     /**
-     * Called by {@link Communication#finish(int)} when ending interactive communications.
+     * Called by {@link Communication#finish(int, long)} when ending interactive communications.
      */
     public void onEndInteractiveCommunication() {
         if (_ongoing == null) return;
         if (_ongoing.getStatus() != CommunicationStatus.FINISHED) return;
 
+        if (_outbox.containsKey(_ongoing.getUID())) {
+            updateCredits(0, _ongoing.getCost());
+            _network.onEndCommunication(_ongoing);
+        }
+
         _ongoing = null;
-        _state.onEndInteractiveCommunication();
+        _state.onEndInteractiveCommunication(this);
     }
 
     /**
@@ -333,26 +457,82 @@ abstract public class Terminal implements Serializable {
      */
     public abstract boolean isCommunicationTypeSupported(String type);
 
+    /**
+     * Called by {@link Network#closeBillingPeriod(String, byte)} when closing a billing period:
+     * the paid communications are forgotten (they are archived by the network).
+     */
+    public void onCloseBillingPeriod() {
+        _outbox.values().removeIf(Communication::isPaid);
+        _inbox.values().removeIf(Communication::isPaid);
+    }
+
     /*
      * ---- Credits ----
      */
 
+    /** The total of the payments (kept up to date as communications are paid). */
+    private double _payments;
+
+    /** The total of the debts (kept up to date as communications are finished and paid). */
+    private double _debts;
+
+    /**
+     * Called by {@link Communication#performPayment()} when a communication sent/started by
+     * this terminal is paid.
+     * 
+     * @param commID the communication id
+     */
+    public void onPerformPayment(int commID) {
+        Communication comm = _outbox.get(commID);
+
+        if (comm == null) return;
+        if (!comm.isPaid()) return;
+
+        updateCredits(comm.getCost(), -comm.getCost());
+        _network.onPerformPayment(comm);
+    }
+
+    /**
+     * Called by {@link Network} when settling several communications sent/started by this
+     * terminal at once (the totals are updated once).
+     * 
+     * @param comms the communications paid
+     */
+    public void onSettleDebts(Collection<Communication> comms) {
+        double amount = comms.stream()
+                .filter(c -> _outbox.containsKey(c.getUID()) && c.isPaid())
+                .mapToDouble(Communication::getCost)
+                .sum();
+        updateCredits(amount, -amount);
+    }
+
+    /**
+     * Updates the totals, letting the network know when the balance changes sign.
+     * 
+     * @param payments the amount to add to the payments
+     * @param debts the amount to add to the debts
+     */
+    private void updateCredits(double payments, double debts) {
+        boolean positive = (balance() > 0);
+
+        _payments += payments;
+        _debts += debts;
+        _version++;
+
+        if (positive != (balance() > 0))
+            _network.onTerminalBalanceChange(this);
+    }
+
     public double balance() {
-        return _outbox.values().stream()
-                    .mapToDouble(c -> (c.isPaid() ? c.getCost() : -c.getCost()))
-                    .sum();
+        return (_payments - _debts);
     }
 
     public double payments() {
-        return _outbox.values().stream()
-                    .mapToDouble(c -> (c.isPaid() ? c.getCost() : 0))
-                    .sum();
+        return _payments;
     }
 
     public double debts() {
-        return _outbox.values().stream()
-                    .mapToDouble(c -> (c.isPaid() ? 0 : c.getCost()))
-                    .sum();
+        return _debts;
     }
 
     /*
@@ -376,17 +556,21 @@ abstract public class Terminal implements Serializable {
      */
     @Override
     public String toString() {
-        String sep = "|";
-        StringBuilder builder = new StringBuilder(getType())
-                .append(sep).append(getUID())
-                .append(sep).append(getOwner().getUID())
-                .append(sep).append(_state)
-                .append(sep).append(Math.round(payments()))
-                .append(sep).append(Math.round(debts()));
-
-        if (hasFriends())
-            builder.append(sep).append(String.join(",", _friends.keySet()));
-
-        return builder.toString();
+        if (_rendered == null || _renderedVersion != _version) {
+            String sep = "|";
+            StringBuilder builder = new StringBuilder(getType())
+                    .append(sep).append(getUID())
+                    .append(sep).append(getOwner().getUID())
+                    .append(sep).append(_state)
+                    .append(sep).append(Math.round(payments()))
+                    .append(sep).append(Math.round(debts()));
+
+            if (hasFriends())
+                builder.append(sep).append(String.join(",", _friends.keySet()));
+
+            _rendered = builder.toString();
+            _renderedVersion = _version;
+        }
+        return _rendered;
     }
 }
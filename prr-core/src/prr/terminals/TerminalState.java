@@ -1,19 +1,16 @@
 package prr.terminals;
 
 import java.io.Serializable;
-import java.util.Collection;
 
 import prr.clients.Client;
 import prr.notifications.Notification;
 
+/**
+ * State of a terminal. States hold no data of their own (whatever a terminal needs to
+ * remember is kept in the terminal), so each state has a single shared instance.
+ */
 abstract class TerminalState implements Serializable {
 
-    protected final Terminal _term;
-
-    public TerminalState(Terminal term) {
-        _term = term;
-    }
-
     public boolean isOff() {
         return false;
     }
@@ -30,49 +27,48 @@ abstract class TerminalState implements Serializable {
         return false;
     }
 
-    public void turnOn() throws IllegalStateException {
-        _term.setState(new IdleState(_term));
+    public void turnOn(Terminal term) throws IllegalStateException {
+        term.setState(IdleState.INSTANCE);
     }
 
-    public void turnOff() throws IllegalStateException {
-        _term.setState(new OffState(_term));
+    public void turnOff(Terminal term) throws IllegalStateException {
+        term.setState(OffState.INSTANCE);
     }
 
-    public void silence() throws IllegalStateException {
-        _term.setState(new SilentState(_term));
+    public void silence(Terminal term) throws IllegalStateException {
+        term.setState(SilentState.INSTANCE);
     }
 
     public boolean canStartCommunication() {
         return false;
     }
 
-    public boolean canEndCurrentCommunication() {
+    public boolean canEndCurrentCommunication(Terminal term) {
         return false;
     }
 
-    public void onTextCommunicationAttempt(Client from) {
+    public void onTextCommunicationAttempt(Terminal term, Client from) {
         /* empty (should be overriden) */
     }
 
-    public void onInteractiveCommunicationAttempt(Client from) {
+    public void onInteractiveCommunicationAttempt(Terminal term, Client from) {
         /* empty (should be overriden) */
     }
 
-    public void onStartInteractiveCommunication() {
+    public void onStartInteractiveCommunication(Terminal term) {
         /* empty (should be overriden) */
     }
 
-    public void onEndInteractiveCommunication() {
+    public void onEndInteractiveCommunication(Terminal term) {
         /* empty (should be overriden) */
     }
 
-    public final void sendNotif(Notification notif, Collection<Client> clients) {
-        clients.forEach(c -> c.sendNotification(notif));
-        clients.clear();
+    public final void sendNotif(Notification notif, Terminal term, int kinds) {
+        term.notifyMissedContacts(notif, kinds);
     }
 
-    public final Notification createNotif(String type) {
-        return new Notification(type, _term);
+    public final Notification createNotif(Terminal term, String type) {
+        return new Notification(type, term);
     }
 
     @Override